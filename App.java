@@ -7,27 +7,59 @@ import javafx.stage.Stage;
 /**
  * My cartoon models the night sky exactly as it is in real life, simulated using javafx. Here is a quick overview
  * of my classes:
- * Cartoon: Main logic class, handles key inputs and timeline movements. Contains logic to track the time that passes
- * per tick.
- * Asterism: Handles the individual composite shapes within the bigger composite shape. Contains methods to translate
- * from alt-az coordinates to rectangular, and update the position of labels
- * Constants: Defines coordinates of all stars
- * NightSky: The main composite object, contains all asterisms, has method to rotate about the north celestial pole.
+ * Cartoon: Main logic class, handles key inputs and timer movements, and lays out the views of the sky.
+ * SkyView: One view of the sky, with its own time, speed and observing site. Contains logic to track the time that
+ * passes per frame.
+ * Asterism: The name of one asterism and the stars its lines connect, by their index in the catalog.
+ * Constants: Defines the fixed values of the program, such as the window size, the observing sites and the data files.
+ * NightSky: The main composite object, contains every star of the catalog and all asterisms. It never changes once
+ * built.
+ * StarCatalog/CatalogImporter: The stars and asterisms, memory-mapped from a binary file that CatalogImporter creates
+ * from data/stars.csv and data/asterisms.txt.
+ * EphemerisEngine: Turns the catalog into the positions of the stars on the screen at any time, for any observer.
+ * SkySimulator: Computes the frames of one view on the engine's pool, off the JavaFX thread.
+ * NodeRenderer/CanvasRenderer/GroupRenderer: The ways of drawing a computed frame (SkyRenderer), switched with C.
  * PaneOrganizer: Sets up the various panes.
  */
 
 public class App extends Application {
 
-    // Create top-level object, set up the scene, and show the stage here.
+    // Create top-level object, set up the scene, and show the stage here. The number of views can be given as the
+    // first command line argument.
     @Override
     public void start(Stage stage) {
-        PaneOrganizer paneOrganizer = new PaneOrganizer();
+        int viewCount = Constants.VIEW_COUNT;
+        if (!this.getParameters().getRaw().isEmpty()) {
+            viewCount = parseViewCount(this.getParameters().getRaw().get(0));
+        }
+        PaneOrganizer paneOrganizer = new PaneOrganizer(viewCount);
         Scene scene = new Scene(paneOrganizer.getRoot(), Constants.APP_WIDTH, Constants.APP_HEIGHT);
         stage.setScene(scene);
         stage.setTitle("Planetarium");
         stage.show();
     }
 
+    /**
+     * Helper method to read the number of views from the command line.
+     *
+     * @param argument the first command line argument
+     * @return the number of views
+     * @throws IllegalArgumentException if it is not a whole number from 1 to Constants.MAX_VIEW_COUNT
+     */
+    private static int parseViewCount(String argument) {
+        int viewCount;
+        try {
+            viewCount = Integer.parseInt(argument.trim());
+        } catch (NumberFormatException e) {
+            viewCount = 0;
+        }
+        if (viewCount < 1 || viewCount > Constants.MAX_VIEW_COUNT) {
+            throw new IllegalArgumentException("The number of views has to be a whole number from 1 to "
+                    + Constants.MAX_VIEW_COUNT + ", not " + argument);
+        }
+        return viewCount;
+    }
+
     /*
      * Here is the mainline! No need to change this.
      */
@@ -1,137 +1,69 @@
 package cartoon;
 
-import javafx.geometry.Point2D;
-import javafx.scene.paint.Color;
-import javafx.scene.shape.Ellipse;
-import javafx.scene.shape.Line;
-import javafx.scene.text.Text;
+import java.util.Arrays;
 
 /**
- * Low-level composite shape class, contains the stars, lines, and name of any given asterism.
+ * Low-level composite class, contains the stars, lines, and name of any given asterism. The stars themselves belong
+ * to the NightSky, an asterism only refers to them by their index in the catalog, and by their slot among the stars
+ * of all asterisms (NightSky.getAsterismStars), which is where a SkyFrame keeps their positions. Drawing is left to
+ * a SkyRenderer.
  */
 public class Asterism {
     /**
      * Each asterism has stars, lines that connect the stars, and a name
      */
-    private Ellipse[] stars;
-    private Line[] lines;
-    private final Text name;
+    private final String name;
 
     /**
-     * Creates the lines and stars graphically and logically, as well as transforming their Alt-az coordinates to the
-     * one defined in the Constants Class comment.
-     *
-     * @param starLocs Locations of all of the stars in the asterism
-     * @param lines    Definitions for all of the lines connecting those stars
-     * @param name     Name of the asterism
+     * Catalog indices of the stars in the asterism, each star only listed once.
      */
-    public Asterism(Point2D[] starLocs, Line[] lines, String name) {
-        this.generateStars(starLocs);
-        this.generateLines(lines);
-        this.name = new Text(name);
-        this.name.setFill(Color.SKYBLUE);
-        this.name.setStyle("-fx-font-size: 10");
-        this.setLabelPos();
-    }
-
-    /**
-     * Helper method to generate all Lines of the asterism graphically and logically.
-     *
-     * @param lines
-     */
-    private void generateLines(Line[] lines) {
-        this.lines = new Line[lines.length];
-        for (int i = 0; i < lines.length; i++) {
-            double r1 = this.calculateR(lines[i].getStartY());
-            double r2 = this.calculateR(lines[i].getEndY());
-            this.lines[i] = new Line(this.transformX(lines[i].getStartX(), r1),
-                    this.transformY(lines[i].getStartX(), r1),
-                    this.transformX(lines[i].getEndX(), r2),
-                    this.transformY(lines[i].getEndX(), r2));
-            this.lines[i].setStroke(Color.BLUE);
-        }
-    }
+    private final int[] stars;
 
     /**
-     * Helper method to generate all stars of the asterism graphically and logically.
-     *
-     * @param starLocs array of the locations of the stars to be generated
+     * The stars each line connects, as catalog indices. Line i goes from star edges[2i] to star edges[2i + 1], so
+     * lines never store positions of their own.
      */
-    private void generateStars(Point2D[] starLocs) {
-        this.stars = new Ellipse[starLocs.length];
-        for (int i = 0; i < starLocs.length; i++) {
-            double r = this.calculateR(starLocs[i].getY());
-            this.stars[i] = new Ellipse(this.transformX(starLocs[i].getX(), r),
-                    this.transformY(starLocs[i].getX(), r), 1, 1);
-            this.stars[i].setFill(Color.WHITE);
-        }
-    }
+    private final int[] edges;
 
     /**
-     * Helper method to determine the distance R from the zenith.
-     *
-     * @param altitude Altitude of the point
-     * @return Radius to the zenith
+     * The same lines as slots among the stars of all asterisms, so the positions of a frame can be read straight away.
      */
-
-    private double calculateR(double altitude) {
-        return (90.0 - altitude) * Constants.SCALE_FACTOR;
-    }
+    private final int[] edgeSlots;
 
     /**
-     * Helper method to transform a point's X value given R and Theta
+     * Creates the asterism from the lines connecting its stars.
      *
-     * @param theta Azimuth, in angles
-     * @param R     Radius from zenith
-     * @return X value in rectangular coordinates
+     * @param edges         pairs of catalog indices for all of the lines connecting the stars
+     * @param name          Name of the asterism
+     * @param asterismStars catalog indices of the stars of all asterisms, sorted, each listed once
      */
-    private double transformX(double theta, double R) {
-        return R * Math.sin(theta * Math.PI / 180.0) + Constants.ZENITH_X;
+    public Asterism(int[] edges, String name, int[] asterismStars) {
+        this.edges = edges;
+        this.stars = Arrays.stream(edges).distinct().toArray();
+        this.name = name;
+        this.edgeSlots = Arrays.stream(this.edges).map(star -> Arrays.binarySearch(asterismStars, star)).toArray();
     }
 
     /**
-     * Helper method to transform a point's Y value given R theta
-     *
-     * @param theta Azimuth, in angles
-     * @param R     Radius from zenith
-     * @return Y value in rectangular coordinates
-     */
-    private double transformY(double theta, double R) {
-        return Constants.ZENITH_Y + R * Math.cos(theta * Math.PI / 180.0);
-    }
-
-    /**
-     * Sets the position of the label to the average positions of all of the stars in the asterism. This is to
-     * keep the label vaguely centered upon its respective asterism.
+     * Getters
      */
-    public void setLabelPos() {
-        double avgX = 0;
-        double avgY = 0;
 
-        for (Ellipse star : this.stars) {
-            avgX += star.getCenterX();
-            avgY += star.getCenterY();
-        }
-        avgX /= this.stars.length;
-        avgY /= this.stars.length;
-
-        this.name.setX(avgX);
-        this.name.setY(avgY);
+    public String getName() {
+        return this.name;
     }
 
-    /**
-     * Getters
-     */
-
-    public Ellipse[] getStars() {
+    public int[] getStars() {
         return this.stars;
     }
 
-    public Line[] getLines() {
-        return this.lines;
+    public int[] getEdges() {
+        return this.edges;
     }
 
-    public Text getName() {
-        return this.name;
+    /**
+     * @return the stars each line connects, as slots among the stars of all asterisms
+     */
+    public int[] getEdgeSlots() {
+        return this.edgeSlots;
     }
 }
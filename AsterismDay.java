@@ -0,0 +1,109 @@
+package cartoon;
+
+import java.time.LocalDate;
+
+/**
+ * When an asterism rises, culminates and sets on one day, as worked out by the AsterismEventSolver. Times are in
+ * milliseconds since 1970, and NaN when the event does not happen during the day (an asterism that never sets has
+ * no rise or set, and near the horizon a day can go by without one of them).
+ * <p>
+ * An asterism has risen as soon as its first star is above the horizon, and has set once its last star is below it.
+ * It culminates when the average direction of its stars crosses the meridian to the south (for us in the north).
+ */
+public class AsterismDay {
+    private final String name;
+    private final LocalDate date;
+    private final double minAltitude;
+    private final double rise;
+    private final double set;
+    private final double culmination;
+    private final double culminationAltitude;
+    private final double fullyAboveStart;
+    private final double fullyAboveEnd;
+    private final boolean upAllDay;
+    private final boolean downAllDay;
+    private final boolean fullyAboveAllDay;
+
+    /**
+     * @param name                name of the asterism
+     * @param date                the day
+     * @param minAltitude         altitude, in degrees, that every star has to be above to count as fully above
+     * @param rise                time the first star rises
+     * @param set                 time the last star sets
+     * @param culmination         time the average direction of the stars crosses the meridian
+     * @param culminationAltitude altitude of the average direction at culmination, in degrees
+     * @param fullyAboveStart     time every star has climbed above minAltitude
+     * @param fullyAboveEnd       time the first star drops below minAltitude again
+     * @param upAllDay            whether some star is above the horizon all day long
+     * @param downAllDay          whether every star is below the horizon all day long
+     * @param fullyAboveAllDay    whether every star is above minAltitude all day long
+     */
+    public AsterismDay(String name, LocalDate date, double minAltitude, double rise, double set, double culmination,
+                       double culminationAltitude, double fullyAboveStart, double fullyAboveEnd, boolean upAllDay,
+                       boolean downAllDay, boolean fullyAboveAllDay) {
+        this.name = name;
+        this.date = date;
+        this.minAltitude = minAltitude;
+        this.rise = rise;
+        this.set = set;
+        this.culmination = culmination;
+        this.culminationAltitude = culminationAltitude;
+        this.fullyAboveStart = fullyAboveStart;
+        this.fullyAboveEnd = fullyAboveEnd;
+        this.upAllDay = upAllDay;
+        this.downAllDay = downAllDay;
+        this.fullyAboveAllDay = fullyAboveAllDay;
+    }
+
+    /**
+     * Getters
+     */
+
+    public String getName() {
+        return this.name;
+    }
+
+    public LocalDate getDate() {
+        return this.date;
+    }
+
+    public double getMinAltitude() {
+        return this.minAltitude;
+    }
+
+    public double getRise() {
+        return this.rise;
+    }
+
+    public double getSet() {
+        return this.set;
+    }
+
+    public double getCulmination() {
+        return this.culmination;
+    }
+
+    public double getCulminationAltitude() {
+        return this.culminationAltitude;
+    }
+
+    public double getFullyAboveStart() {
+        return this.fullyAboveStart;
+    }
+
+    public double getFullyAboveEnd() {
+        return this.fullyAboveEnd;
+    }
+
+    public boolean isUpAllDay() {
+        return this.upAllDay;
+    }
+
+    public boolean isDownAllDay() {
+        return this.downAllDay;
+    }
+
+    public boolean isFullyAboveAllDay() {
+        return this.fullyAboveAllDay;
+    }
+}
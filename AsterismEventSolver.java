@@ -0,0 +1,439 @@
+package cartoon;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Works out when each asterism rises, culminates and sets, and when all of its stars are above a given altitude, on
+ * every day of a date range, so viewing sessions can be planned without watching the animation. Run on its own, it
+ * prints a table of these times (see main).
+ * <p>
+ * Each event is where some function of time crosses a value: the highest star of the asterism crossing the horizon
+ * for rise and set, the lowest star crossing the altitude for "fully above", and the average direction of the stars
+ * crossing the meridian for culmination. The function is sampled every few minutes across the day, and each crossing
+ * found is then narrowed down by bisection. Only sin of the altitude is ever needed, compared against sin of the
+ * target altitude, so the solver needs no inverse trig at all.
+ * <p>
+ * Results are cached per asterism, observer, day and altitude, up to Constants.SOLVER_CACHE_SIZE of them, and days are
+ * solved in parallel across the pool.
+ */
+public class AsterismEventSolver {
+    private final NightSky sky;
+    private final ForkJoinPool pool;
+    private final ZoneId zone;
+
+    /**
+     * Direction of every star of every asterism as a unit vector in equatorial coordinates, so the inner loops read
+     * small arrays instead of going through the catalog.
+     */
+    private final double[][] starX;
+    private final double[][] starY;
+    private final double[][] starZ;
+
+    //least recently used results are dropped once there are more than Constants.SOLVER_CACHE_SIZE
+    private final Map<DayKey, AsterismDay> cache;
+
+    /**
+     * A function of time to find the crossings of.
+     */
+    private interface TimeFunction {
+        double at(double epochMillis);
+    }
+
+    /**
+     * Creates a solver that works out days in the system's time zone, on the common fork-join pool.
+     *
+     * @param sky the asterisms to solve
+     */
+    public AsterismEventSolver(NightSky sky) {
+        this(sky, ForkJoinPool.commonPool(), ZoneId.systemDefault());
+    }
+
+    /**
+     * @param sky  the asterisms to solve
+     * @param pool the pool days are solved on
+     * @param zone the time zone days start and end in
+     */
+    public AsterismEventSolver(NightSky sky, ForkJoinPool pool, ZoneId zone) {
+        this.sky = sky;
+        this.pool = pool;
+        this.zone = zone;
+        this.cache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<DayKey, AsterismDay> eldest) {
+                return this.size() > Constants.SOLVER_CACHE_SIZE;
+            }
+        };
+
+        Asterism[] asterisms = sky.getAsterisms();
+        StarBuffer stars = sky.getStars();
+        this.starX = new double[asterisms.length][];
+        this.starY = new double[asterisms.length][];
+        this.starZ = new double[asterisms.length][];
+        for (int a = 0; a < asterisms.length; a++) {
+            int[] asterismStars = asterisms[a].getStars();
+            this.starX[a] = new double[asterismStars.length];
+            this.starY[a] = new double[asterismStars.length];
+            this.starZ[a] = new double[asterismStars.length];
+            for (int s = 0; s < asterismStars.length; s++) {
+                this.starX[a][s] = stars.getEquatorialX(asterismStars[s]);
+                this.starY[a][s] = stars.getEquatorialY(asterismStars[s]);
+                this.starZ[a][s] = stars.getEquatorialZ(asterismStars[s]);
+            }
+        }
+    }
+
+    /**
+     * Solves every asterism on every day of the range, in parallel. Days that were solved before come from the
+     * cache.
+     *
+     * @param start       the first day
+     * @param days        number of days
+     * @param observer    where the sky is seen from
+     * @param minAltitude altitude, in degrees, that every star has to be above to count as fully above
+     * @return the results, indexed by asterism and then by day
+     */
+    public AsterismDay[][] solve(LocalDate start, int days, Observer observer, double minAltitude) {
+        AsterismDay[][] results = new AsterismDay[this.sky.getAsterisms().length][days];
+        this.pool.invoke(new SolveTask(results, start, days, observer, minAltitude, 0, results.length * days));
+        return results;
+    }
+
+    /**
+     * Solves one asterism on one day, or returns the cached result if it was solved before. The cache is only locked
+     * to look up and store results, never while solving, so the other tasks of the pool are not held up. Two tasks
+     * that solve the same day at once both get the result that was stored first.
+     *
+     * @param asterism    index of the asterism
+     * @param date        the day
+     * @param observer    where the sky is seen from
+     * @param minAltitude altitude, in degrees, that every star has to be above to count as fully above
+     * @return the result
+     */
+    public AsterismDay getDay(int asterism, LocalDate date, Observer observer, double minAltitude) {
+        DayKey key = new DayKey(asterism, date, observer, minAltitude);
+        AsterismDay day;
+        synchronized (this.cache) {
+            day = this.cache.get(key);
+        }
+        if (day != null) {
+            return day;
+        }
+        day = this.solveDay(asterism, date, observer, minAltitude);
+        synchronized (this.cache) {
+            AsterismDay stored = this.cache.putIfAbsent(key, day);
+            return stored != null ? stored : day;
+        }
+    }
+
+    /**
+     * Helper method to solve one asterism on one day. Samples the highest and lowest star, and the hour angle of the
+     * average direction, every Constants.SOLVER_STEP_MINUTES, and narrows down the first crossing of each event.
+     *
+     * @param a           index of the asterism
+     * @param date        the day
+     * @param observer    where the sky is seen from
+     * @param minAltitude altitude, in degrees, that every star has to be above to count as fully above
+     * @return the result
+     */
+    private AsterismDay solveDay(int a, LocalDate date, Observer observer, double minAltitude) {
+        double dayStart = date.atStartOfDay(this.zone).toInstant().toEpochMilli();
+        double dayEnd = date.plusDays(1).atStartOfDay(this.zone).toInstant().toEpochMilli();
+        double sinMinAltitude = Math.sin(Math.toRadians(minAltitude));
+        //the Earth's axis moves less than an arcsecond in a day, so the precession at noon is used for the whole day
+        double[] precession = new double[9];
+        PrecessionNutation.fillMatrix((dayStart + dayEnd) / 2, precession);
+        //the average direction of the stars is what culminates
+        double[] x = this.sky.getCenterX();
+        double[] y = this.sky.getCenterY();
+        double[] z = this.sky.getCenterZ();
+        double centerX = precession[0] * x[a] + precession[1] * y[a] + precession[2] * z[a];
+        double centerY = precession[3] * x[a] + precession[4] * y[a] + precession[5] * z[a];
+        double centerZ = precession[6] * x[a] + precession[7] * y[a] + precession[8] * z[a];
+        double centerRightAscension = Math.atan2(centerY, centerX);
+        double centerDeclination = Math.atan2(centerZ, Math.hypot(centerX, centerY));
+        //every sample and bisection step of the day fills in the same zenith
+        double[] zenith = new double[3];
+        TimeFunction highest = time -> this.highestStar(a, time, observer, precession, zenith);
+        TimeFunction lowest = time -> this.lowestStar(a, time, observer, precession, zenith);
+        TimeFunction hourAngle = time -> Math.sin(
+                EphemerisEngine.localSiderealTime(time, observer.getLongitude()) - centerRightAscension);
+
+        double rise = Double.NaN;
+        double set = Double.NaN;
+        double culmination = Double.NaN;
+        double fullyAboveStart = Double.NaN;
+        double fullyAboveEnd = Double.NaN;
+        boolean upAllDay = true;
+        boolean downAllDay = true;
+        boolean fullyAboveAllDay = true;
+
+        int steps = (int) Math.ceil((dayEnd - dayStart) / (Constants.SOLVER_STEP_MINUTES * 60000.0));
+        double step = (dayEnd - dayStart) / steps;
+        double time = dayStart;
+        double high = highest.at(time);
+        double low = lowest.at(time);
+        double hour = hourAngle.at(time);
+        for (int i = 1; i <= steps; i++) {
+            double nextTime = i == steps ? dayEnd : dayStart + i * step;
+            double nextHigh = highest.at(nextTime);
+            double nextLow = lowest.at(nextTime);
+            double nextHour = hourAngle.at(nextTime);
+
+            upAllDay &= high >= 0;
+            downAllDay &= high < 0;
+            fullyAboveAllDay &= low >= sinMinAltitude;
+            if (Double.isNaN(rise) && high < 0 && nextHigh >= 0) {
+                rise = findCrossing(highest, time, nextTime, 0);
+            }
+            if (Double.isNaN(set) && high >= 0 && nextHigh < 0) {
+                set = findCrossing(highest, time, nextTime, 0);
+            }
+            if (Double.isNaN(fullyAboveStart) && low < sinMinAltitude && nextLow >= sinMinAltitude) {
+                fullyAboveStart = findCrossing(lowest, time, nextTime, sinMinAltitude);
+            }
+            if (Double.isNaN(fullyAboveEnd) && low >= sinMinAltitude && nextLow < sinMinAltitude) {
+                fullyAboveEnd = findCrossing(lowest, time, nextTime, sinMinAltitude);
+            }
+            //sin of the hour angle goes from negative to positive at the upper culmination, where cos of the hour
+            //angle is positive, and from positive to negative at the lower one, so only the first is bracketed
+            if (Double.isNaN(culmination) && hour < 0 && nextHour >= 0
+                    && Math.cos(EphemerisEngine.localSiderealTime(nextTime, observer.getLongitude())
+                    - centerRightAscension) > 0) {
+                culmination = findCrossing(hourAngle, time, nextTime, 0);
+            }
+            time = nextTime;
+            high = nextHigh;
+            low = nextLow;
+            hour = nextHour;
+        }
+        upAllDay &= high >= 0;
+        downAllDay &= high < 0;
+        fullyAboveAllDay &= low >= sinMinAltitude;
+
+        double culminationAltitude = 90 - Math.abs(observer.getLatitude() - Math.toDegrees(centerDeclination));
+        return new AsterismDay(this.sky.getAsterisms()[a].getName(), date, minAltitude, rise, set, culmination,
+                culminationAltitude, fullyAboveStart, fullyAboveEnd, upAllDay, downAllDay, fullyAboveAllDay);
+    }
+
+    /**
+     * Helper method to find sin of the altitude of the highest star of an asterism.
+     *
+     * @param a          index of the asterism
+     * @param time       the time, in milliseconds since 1970
+     * @param observer   where the sky is seen from
+     * @param precession rotation from the catalog's directions into those of the day (see PrecessionNutation)
+     * @param zenith     the three values to fill with the zenith on the way
+     * @return sin of the altitude of the highest star
+     */
+    private double highestStar(int a, double time, Observer observer, double[] precession, double[] zenith) {
+        double siderealAngle = EphemerisEngine.localSiderealTime(time, observer.getLongitude());
+        fillZenith(siderealAngle, observer, precession, zenith);
+        double highest = -1;
+        for (int s = 0; s < this.starX[a].length; s++) {
+            highest = Math.max(highest,
+                    zenith[0] * this.starX[a][s] + zenith[1] * this.starY[a][s] + zenith[2] * this.starZ[a][s]);
+        }
+        return highest;
+    }
+
+    /**
+     * Helper method to find sin of the altitude of the lowest star of an asterism.
+     *
+     * @param a          index of the asterism
+     * @param time       the time, in milliseconds since 1970
+     * @param observer   where the sky is seen from
+     * @param precession rotation from the catalog's directions into those of the day (see PrecessionNutation)
+     * @param zenith     the three values to fill with the zenith on the way
+     * @return sin of the altitude of the lowest star
+     */
+    private double lowestStar(int a, double time, Observer observer, double[] precession, double[] zenith) {
+        double siderealAngle = EphemerisEngine.localSiderealTime(time, observer.getLongitude());
+        fillZenith(siderealAngle, observer, precession, zenith);
+        double lowest = 1;
+        for (int s = 0; s < this.starX[a].length; s++) {
+            lowest = Math.min(lowest,
+                    zenith[0] * this.starX[a][s] + zenith[1] * this.starY[a][s] + zenith[2] * this.starZ[a][s]);
+        }
+        return lowest;
+    }
+
+    /**
+     * Helper method to fill in the direction of the zenith in the catalog's coordinates. sin of the altitude of a star
+     * is then simply the dot product of its direction with the zenith's.
+     *
+     * @param siderealAngle local sidereal time, in radians
+     * @param observer      where the sky is seen from
+     * @param precession    rotation from the catalog's directions into those of the day
+     * @param zenith        the three values to fill with the zenith, as a unit vector
+     */
+    private static void fillZenith(double siderealAngle, Observer observer, double[] precession, double[] zenith) {
+        double x = observer.getCosLatitude() * Math.cos(siderealAngle);
+        double y = observer.getCosLatitude() * Math.sin(siderealAngle);
+        double z = observer.getSinLatitude();
+        zenith[0] = precession[0] * x + precession[3] * y + precession[6] * z;
+        zenith[1] = precession[1] * x + precession[4] * y + precession[7] * z;
+        zenith[2] = precession[2] * x + precession[5] * y + precession[8] * z;
+    }
+
+    /**
+     * Helper method to narrow down where a function crosses a value by bisection, given two times on either side of
+     * the crossing, until they are less than Constants.SOLVER_TOLERANCE_MILLIS apart.
+     *
+     * @param function the function
+     * @param before   a time before the crossing
+     * @param after    a time after the crossing
+     * @param value    the value crossed
+     * @return the time of the crossing
+     */
+    private static double findCrossing(TimeFunction function, double before, double after, double value) {
+        boolean belowBefore = function.at(before) < value;
+        while (after - before > Constants.SOLVER_TOLERANCE_MILLIS) {
+            double middle = (before + after) / 2;
+            if ((function.at(middle) < value) == belowBefore) {
+                before = middle;
+            } else {
+                after = middle;
+            }
+        }
+        return (before + after) / 2;
+    }
+
+    /**
+     * Solves a range of the (asterism, day) pairs of a solve call, splitting itself in half until the range is
+     * small enough.
+     */
+    @SuppressWarnings("serial")
+    private class SolveTask extends RecursiveAction {
+        private final AsterismDay[][] results;
+        private final LocalDate start;
+        private final int days;
+        private final Observer observer;
+        private final double minAltitude;
+        private final int from;
+        private final int to;
+
+        private SolveTask(AsterismDay[][] results, LocalDate start, int days, Observer observer, double minAltitude,
+                          int from, int to) {
+            this.results = results;
+            this.start = start;
+            this.days = days;
+            this.observer = observer;
+            this.minAltitude = minAltitude;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (this.to - this.from > Constants.SOLVER_BLOCK_DAYS) {
+                int middle = (this.from + this.to) >>> 1;
+                invokeAll(new SolveTask(this.results, this.start, this.days, this.observer, this.minAltitude,
+                                this.from, middle),
+                        new SolveTask(this.results, this.start, this.days, this.observer, this.minAltitude, middle,
+                                this.to));
+                return;
+            }
+            //the number of days is passed in rather than read from results, which has no rows without asterisms
+            for (int i = this.from; i < this.to; i++) {
+                int asterism = i / this.days;
+                int day = i % this.days;
+                this.results[asterism][day] = AsterismEventSolver.this.getDay(asterism, this.start.plusDays(day),
+                        this.observer, this.minAltitude);
+            }
+        }
+    }
+
+    /**
+     * What a cached result is looked up by.
+     */
+    private static class DayKey {
+        private final int asterism;
+        private final LocalDate date;
+        private final Observer observer;
+        private final double minAltitude;
+
+        private DayKey(int asterism, LocalDate date, Observer observer, double minAltitude) {
+            this.asterism = asterism;
+            this.date = date;
+            this.observer = observer;
+            this.minAltitude = minAltitude;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof DayKey)) {
+                return false;
+            }
+            DayKey other = (DayKey) o;
+            return this.asterism == other.asterism && this.date.equals(other.date)
+                    && this.observer.equals(other.observer)
+                    && Double.compare(this.minAltitude, other.minAltitude) == 0;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(this.asterism, this.date, this.observer, this.minAltitude);
+        }
+    }
+
+    /**
+     * Prints when every asterism rises, culminates and sets on every day of a date range.
+     * <p>
+     * Run with: java cartoon.AsterismEventSolver [first day (yyyy-mm-dd)] [days] [altitude] [latitude longitude]
+     * <p>
+     * By default, the day the program starts at, seen from the location in Constants, with an altitude of 20 degrees.
+     */
+    public static void main(String[] argv) {
+        ZoneId zone = ZoneId.systemDefault();
+        LocalDate start = argv.length > 0 ? LocalDate.parse(argv[0])
+                : Instant.ofEpochMilli(Constants.EPOCH_MILLIS).atZone(zone).toLocalDate();
+        int days = argv.length > 1 ? Integer.parseInt(argv[1]) : 1;
+        double minAltitude = argv.length > 2 ? Double.parseDouble(argv[2]) : Constants.SOLVER_DEFAULT_ALTITUDE;
+        Observer observer = argv.length > 4 ? new Observer(Double.parseDouble(argv[3]), Double.parseDouble(argv[4]))
+                : new Observer(Constants.LATITUDE, Constants.LONGITUDE);
+
+        AsterismEventSolver solver = new AsterismEventSolver(new NightSky(), ForkJoinPool.commonPool(), zone);
+        long solveStart = System.nanoTime();
+        AsterismDay[][] results = solver.solve(start, days, observer, minAltitude);
+        long solveNanos = System.nanoTime() - solveStart;
+
+        System.out.printf("%-24s %-10s %6s %6s %6s %5s %11s%n", "asterism", "date", "rise", "culm.", "set", "alt.",
+                "above " + (int) minAltitude);
+        for (AsterismDay[] asterism : results) {
+            for (AsterismDay day : asterism) {
+                String fullyAbove = day.isFullyAboveAllDay() ? "all day"
+                        : formatTime(day.getFullyAboveStart(), zone) + "-" + formatTime(day.getFullyAboveEnd(), zone);
+                System.out.printf("%-24s %-10s %6s %6s %6s %5.1f %11s%n", day.getName(), day.getDate(),
+                        day.isUpAllDay() ? "up" : formatTime(day.getRise(), zone),
+                        formatTime(day.getCulmination(), zone),
+                        day.isDownAllDay() ? "down" : formatTime(day.getSet(), zone), day.getCulminationAltitude(),
+                        fullyAbove);
+            }
+        }
+        System.out.printf("solved %d asterism-days in %.1f ms%n", results.length * days, solveNanos / 1e6);
+    }
+
+    /**
+     * Helper method to format a time as hours and minutes in the given zone.
+     *
+     * @param epochMillis the time, or NaN for none
+     * @param zone        the time zone
+     * @return the time, or dashes for none
+     */
+    private static String formatTime(double epochMillis, ZoneId zone) {
+        if (Double.isNaN(epochMillis)) {
+            return "--";
+        }
+        LocalTime time = Instant.ofEpochMilli(Math.round(epochMillis)).atZone(zone).toLocalTime();
+        return time.format(DateTimeFormatter.ofPattern("HH:mm"));
+    }
+}
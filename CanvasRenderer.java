@@ -0,0 +1,92 @@
+package cartoon;
+
+import javafx.scene.Node;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.image.PixelFormat;
+import javafx.scene.image.WritableImage;
+import javafx.scene.paint.Color;
+import javafx.scene.text.Font;
+
+/**
+ * Draws the whole sky onto a single Canvas every tick. Unlike the NodeRenderer, the scene graph only ever contains
+ * one node no matter how many stars there are, so there is no per-star cost for CSS, layout or picking.
+ * <p>
+ * Drawing is batched: all lines are added to one path and stroked once, so the number of draw calls for them does not
+ * grow with the number of lines. Stars are drawn larger and with a glow the brighter they are, each stamped as a
+ * single copy from the sprite atlas of the sky (see StarSprites), so every star costs the same, however bright. All
+ * copies come from the same image, which JavaFX keeps as one texture.
+ */
+public class CanvasRenderer implements SkyRenderer {
+    private final Asterism[] asterisms;
+    private final StarSprites sprites;
+    private final WritableImage atlas;
+    private final Canvas canvas;
+    private final GraphicsContext gc;
+    private final Font labelFont;
+
+    /**
+     * Creates a canvas the size of the shape pane, and turns the sprite atlas of the sky into an image.
+     *
+     * @param sky the sky that is drawn
+     */
+    public CanvasRenderer(NightSky sky) {
+        this.asterisms = sky.getAsterisms();
+        this.sprites = sky.getSprites();
+        this.atlas = new WritableImage(this.sprites.getWidth(), this.sprites.getHeight());
+        this.atlas.getPixelWriter().setPixels(0, 0, this.sprites.getWidth(), this.sprites.getHeight(),
+                PixelFormat.getIntArgbInstance(), this.sprites.getPixels(), 0, this.sprites.getWidth());
+        this.canvas = new Canvas(Constants.APP_WIDTH, Constants.CARTOON_PANE_HEIGHT);
+        this.gc = this.canvas.getGraphicsContext2D();
+        this.labelFont = Font.font(10);
+    }
+
+    @Override
+    public Node getNode() {
+        return this.canvas;
+    }
+
+    /**
+     * Clears the canvas, then draws every line, then every star above the horizon on top of them, then every name.
+     * The canvas is first made the size of the frame's view, if the view has been resized.
+     *
+     * @param frame the frame to draw
+     */
+    @Override
+    public void render(SkyFrame frame) {
+        Viewport viewport = frame.getViewport();
+        if (this.canvas.getWidth() != viewport.getWidth() || this.canvas.getHeight() != viewport.getHeight()) {
+            this.canvas.setWidth(viewport.getWidth());
+            this.canvas.setHeight(viewport.getHeight());
+        }
+        this.gc.clearRect(0, 0, this.canvas.getWidth(), this.canvas.getHeight());
+
+        this.gc.setStroke(Color.BLUE);
+        this.gc.setLineWidth(1);
+        this.gc.beginPath();
+        for (Asterism asterism : this.asterisms) {
+            int[] edgeSlots = asterism.getEdgeSlots();
+            for (int i = 0; i < edgeSlots.length; i += 2) {
+                this.gc.moveTo(frame.getAsterismStarX(edgeSlots[i]), frame.getAsterismStarY(edgeSlots[i]));
+                this.gc.lineTo(frame.getAsterismStarX(edgeSlots[i + 1]), frame.getAsterismStarY(edgeSlots[i + 1]));
+            }
+        }
+        this.gc.stroke();
+
+        //each star is stamped with the sprite of its magnitude, with the middle of its middle pixel on the star
+        int[] visibleStars = frame.getVisibleStars();
+        for (int k = 0; k < frame.getVisibleCount(); k++) {
+            int bucket = this.sprites.getStarBucket(visibleStars[k]);
+            int size = this.sprites.getSize(bucket);
+            double half = size / 2.0;
+            this.gc.drawImage(this.atlas, this.sprites.getOffset(bucket), 0, size, size,
+                    frame.getVisibleX(k) - half, frame.getVisibleY(k) - half, size, size);
+        }
+
+        this.gc.setFill(Color.SKYBLUE);
+        this.gc.setFont(this.labelFont);
+        for (int i = 0; i < this.asterisms.length; i++) {
+            this.gc.fillText(this.asterisms[i].getName(), frame.getLabelX(i), frame.getLabelY(i));
+        }
+    }
+}
@@ -1,10 +1,10 @@
 package cartoon;
 
-import javafx.animation.Animation;
-import javafx.animation.KeyFrame;
-import javafx.animation.Timeline;
+import javafx.animation.AnimationTimer;
 import javafx.event.ActionEvent;
 import javafx.geometry.Pos;
+import javafx.scene.Node;
+import javafx.scene.Parent;
 import javafx.scene.control.Button;
 import javafx.scene.control.Label;
 import javafx.scene.input.KeyCode;
@@ -12,140 +12,119 @@ import javafx.scene.input.KeyEvent;
 import javafx.scene.layout.Pane;
 import javafx.scene.layout.VBox;
 import javafx.scene.paint.Color;
-import javafx.scene.shape.Ellipse;
-import javafx.scene.shape.Rectangle;
-import javafx.scene.shape.Shape;
+import javafx.scene.text.Font;
 import javafx.scene.text.Text;
-import javafx.util.Duration;
-import java.math.BigDecimal;
-import java.util.Date;
 
 /**
  * Main Logic Class.
  * <p>
  * Contains Logic for:
- * - speeding up/slowing down rotation speed on button press
- * - pausing rotation on spacebar press
- * - updating the passage of time
- * - updating graphical elements per timeline tick
- * - adding all graphical elements
+ * - laying out one or more views of the sky (see SkyView)
+ * - passing key presses on to the selected view
+ * - updating the passage of time and graphical elements of every view every frame
+ * - adding the controls
+ * - measuring how fast all of this runs (see FrameMetrics), shown over the views when M is pressed
  */
 public class Cartoon {
     private final Pane shapePane;
     private final VBox controlPane;
     private final NightSky sky;
-    private Timeline timeline;
-    private Label timeLabel;
-    private BigDecimal masterTime;
-    private int multiplierIndex;
+    private final EphemerisEngine engine;
+    private final SkyView[] views;
+    private final FrameMetrics metrics;
+    private Label metricsLabel;
+    private int selectedView;
+    private AnimationTimer timer;
+    private long lastFrameNanos; //time of the previous frame, or -1 before the first frame
 
     /**
-     * Instantiated shapePane, controlPane, creates a new Night Sky, and sets the initial speed. Graphically adds
-     * All asterisms, the controlPane text and buttons, sets focus and starts the timeline.
+     * Instantiated shapePane, controlPane, creates a new Night Sky and the engine that computes it and the metrics,
+     * which every view shares, and the views themselves. Graphically adds the views, the (hidden) metrics overlay, the
+     * controlPane text and buttons, sets focus and starts the timer.
      *
      * @param shapePane   Pane in which all animated graphical elements will lie
      * @param controlPane Pane that displays instructions and quit button
+     * @param viewCount   number of views of the sky to show side by side, from 1 to Constants.MAX_VIEW_COUNT
      */
-    public Cartoon(Pane shapePane, VBox controlPane) {
+    public Cartoon(Pane shapePane, VBox controlPane, int viewCount) {
+        if (viewCount < 1 || viewCount > Constants.MAX_VIEW_COUNT) {
+            throw new IllegalArgumentException("Cannot show " + viewCount + " views, only 1 to "
+                    + Constants.MAX_VIEW_COUNT);
+        }
         this.shapePane = shapePane;
         this.controlPane = controlPane;
         this.sky = new NightSky();
-        this.multiplierIndex = Constants.INITIAL_MULTIPLIER_INDEX;
+        this.engine = new EphemerisEngine(this.sky);
+        this.metrics = new FrameMetrics();
+        this.views = new SkyView[viewCount];
+        //each view starts at a different observing site, so they do not all show the same sky
+        for (int i = 0; i < viewCount; i++) {
+            this.views[i] = new SkyView(this.engine, this.metrics, i % Constants.SITE_NAMES.length);
+        }
+        this.selectedView = 0;
 
-        this.addNightSky();
+        this.addViews();
+        this.addMetricsLabel();
         this.addControl();
-        this.addTimeLabel();
         this.setupFocusAndKeyHandler();
-        this.setupTimeline();
-    }
-
-    /**
-     * Adds all graphical elements of the program.
-     */
-    private void addNightSky() {
-        this.addAsterisms();
-        this.addCardinalDirections();
-        this.addZenithLabel();
-        this.addGround();
+        this.setupTimer();
     }
 
     /**
-     * We grab all of the Asterisms available in the night sky, and for each asterism, we add every star and line, and
-     * add its respective name label.
+     * Adds the views to the shapePane, and lays them out again whenever the shapePane changes size, which it does
+     * along with the window.
      */
-    private void addAsterisms() {
-        //add asterisms
-        for (int i = 0; i < this.sky.getAsterisms().length; i++) {
-            for (int j = 0; j < this.sky.getAsterisms()[i].getLines().length; j++) {
-                this.shapePane.getChildren().addAll(this.sky.getAsterisms()[i].getLines()[j]);
-            }
-            for (int j = 0; j < this.sky.getAsterisms()[i].getStars().length; j++) {
-                this.shapePane.getChildren().addAll(this.sky.getAsterisms()[i].getStars()[j]);
-            }
-            this.shapePane.getChildren().addAll(this.sky.getAsterisms()[i].getName());
+    private void addViews() {
+        for (SkyView view : this.views) {
+            this.shapePane.getChildren().add(view.getPane());
         }
+        this.views[this.selectedView].setSelected(this.views.length > 1);
+        this.layoutViews(Constants.APP_WIDTH, Constants.CARTOON_PANE_HEIGHT);
+        this.shapePane.widthProperty().addListener((observable, oldWidth, newWidth) ->
+                this.layoutViews(newWidth.doubleValue(), this.shapePane.getHeight()));
+        this.shapePane.heightProperty().addListener((observable, oldHeight, newHeight) ->
+                this.layoutViews(this.shapePane.getWidth(), newHeight.doubleValue()));
     }
 
     /**
-     * Adds a dot and label to where the Zenith (Point directly overhead) should be.
-     */
-    private void addZenithLabel() {
-        Ellipse zenith = new Ellipse(Constants.ZENITH_X, Constants.ZENITH_Y, 2, 2);
-        zenith.setFill(Color.RED);
-        Text zenithLabel = new Text("Zenith");
-        zenithLabel.setX(Constants.ZENITH_X + 3);
-        zenithLabel.setY(Constants.ZENITH_Y + 13);
-        zenithLabel.setFill(Color.SKYBLUE);
-
-        this.shapePane.getChildren().add(zenith);
-        this.shapePane.getChildren().add(zenithLabel);
-    }
-
-    /**
-     * Adds the four cardinal directions to the app. According to our definitions, North is at the bottom of the screen.
+     * Helper method to lay the views out in a grid that is as close to square as possible, each view taking up one
+     * cell of the shapePane. A single view simply fills the shapePane. Every view fits the sky to its own size.
+     *
+     * @param width  width of the shapePane
+     * @param height height of the shapePane
      */
-    private void addCardinalDirections() {
-        Text north = new Text("N");
-        Text south = new Text("S");
-        Text east = new Text("E");
-        Text west = new Text("W");
-
-        north.setX(Constants.ZENITH_X);
-        north.setY(Constants.ZENITH_Y + Constants.ZENITH_ALTITUDE * Constants.SCALE_FACTOR);
-
-        south.setX(Constants.ZENITH_X);
-        south.setY(Constants.ZENITH_Y - Constants.ZENITH_ALTITUDE * Constants.SCALE_FACTOR + 10);
-
-        east.setX(Constants.ZENITH_X + Constants.ZENITH_ALTITUDE * Constants.SCALE_FACTOR - 10);
-        east.setY(Constants.ZENITH_Y);
-
-        west.setX(Constants.ZENITH_X - Constants.ZENITH_ALTITUDE * Constants.SCALE_FACTOR);
-        west.setY(Constants.ZENITH_Y);
-
-        north.setFill(Color.RED);
-        south.setFill(Color.RED);
-        east.setFill(Color.RED);
-        west.setFill(Color.RED);
-
-        this.shapePane.getChildren().add(north);
-        this.shapePane.getChildren().add(south);
-        this.shapePane.getChildren().add(east);
-        this.shapePane.getChildren().add(west);
+    private void layoutViews(double width, double height) {
+        if (width <= 0 || height <= 0) {
+            return;
+        }
+        int columns = (int) Math.ceil(Math.sqrt(this.views.length));
+        int rows = (int) Math.ceil(this.views.length / (double) columns);
+        double cellWidth = Math.floor(width / columns);
+        double cellHeight = Math.floor(height / rows);
+        for (int i = 0; i < this.views.length; i++) {
+            Pane pane = this.views[i].getPane();
+            pane.setLayoutX((i % columns) * cellWidth);
+            pane.setLayoutY((i / columns) * cellHeight);
+            this.views[i].setSize(cellWidth, cellHeight);
+        }
+        if (this.metricsLabel != null) {
+            this.metricsLabel.setLayoutX(width - 330);
+        }
     }
 
     /**
-     * Cuts out the background of the night sky (A circle when projected onto our FOV) and adds the cutout as the
-     * ground, and leaves a black circle in the middle.
+     * Adds the label the performance metrics are shown in, over the top right corner of the views. It starts out
+     * hidden, and lets the mouse through to the views below.
      */
-    private void addGround() {
-        Rectangle groundCutOut = new Rectangle(Constants.APP_WIDTH*2, Constants.CARTOON_PANE_HEIGHT*2);
-        Ellipse ground = new Ellipse(Constants.ZENITH_X, Constants.ZENITH_Y,
-                Constants.ZENITH_ALTITUDE * Constants.SCALE_FACTOR,
-                Constants.ZENITH_ALTITUDE * Constants.SCALE_FACTOR);
-        Shape cutOut = Shape.subtract(groundCutOut, ground);
-        cutOut.setFill(Color.DARKSLATEGRAY);
-
-        this.shapePane.getChildren().add(cutOut);
+    private void addMetricsLabel() {
+        this.metricsLabel = new Label(this.metrics.describe(0));
+        this.metricsLabel.setFont(Font.font("Monospaced", 11));
+        this.metricsLabel.setTextFill(Color.LIME);
+        this.metricsLabel.setStyle("-fx-background-color: rgba(0, 0, 0, 0.7); -fx-padding: 4");
+        this.metricsLabel.setLayoutX(Constants.APP_WIDTH - 330);
+        this.metricsLabel.setMouseTransparent(true);
+        this.metricsLabel.setVisible(false);
+        this.shapePane.getChildren().add(this.metricsLabel);
     }
 
     /**
@@ -178,49 +157,66 @@ public class Cartoon {
     }
 
     /**
-     * Adds the dynamic label that changes with time. The text is updated using a BigDecimal and Date class to keep
-     * track of time passing.
-     * Because of the precession of the Earth, we need very precise measurements to track the drifting of the
-     * constellations throughout the year.
-     * Date keeps track of the day, month, year, and time.
+     * Sets up an AnimationTimer, which calls updateCartoon once for every frame the screen shows, with the time of
+     * that frame.
      */
-    private void addTimeLabel() {
-
-        this.masterTime = new BigDecimal(1634616000000L); //Number is the offset in milliseconds of 10/19/21 from 1900.
-        this.timeLabel = new Label(new Date(this.masterTime.longValue()).toString());
-        this.timeLabel.setTextFill(Color.WHITE);
-        this.timeLabel.setStyle("-fx-font-size: 18");
-
-        this.shapePane.getChildren().add(this.timeLabel);
-
+    private void setupTimer() {
+        this.timer = new AnimationTimer() {
+            @Override
+            public void handle(long now) {
+                Cartoon.this.updateCartoon(now);
+            }
+        };
+        this.lastFrameNanos = -1;
+        this.timer.start();
     }
 
     /**
-     * Sets up timeline according to defined keyframe.
+     * Moves every view forward by the real time since the last frame, then draws every view. All views ask for their
+     * next sky before any of them is drawn, so the skies are computed side by side on the shared pool while the
+     * earlier views are being drawn, and every view changes in the same frame.
+     * <p>
+     * The time and allocations of all of this are recorded as a frame of the metrics, and whenever a window of the
+     * metrics finishes while they are shown, the overlay is updated with the new numbers.
+     *
+     * @param now time of the frame, in nanoseconds, as given by the AnimationTimer
      */
-    private void setupTimeline() {
-        KeyFrame kf = new KeyFrame(Duration.seconds(Constants.KEYFRAME_DURATION), (ActionEvent e) -> this.updateCartoon());
-        this.timeline = new Timeline(kf);
-        this.timeline.setCycleCount(Animation.INDEFINITE);
-        this.timeline.play();
+    private void updateCartoon(long now) {
+        long start = System.nanoTime();
+        long bytes = FrameMetrics.allocatedBytes();
+
+        if (this.lastFrameNanos >= 0) {
+            for (SkyView view : this.views) {
+                view.advance(now - this.lastFrameNanos);
+            }
+        }
+        this.lastFrameNanos = now;
+
+        for (SkyView view : this.views) {
+            view.render();
+        }
+
+        long updateNanos = System.nanoTime() - start;
+        if (this.metrics.recordFrame(now, updateNanos, FrameMetrics.allocatedBytes() - bytes)
+                && this.metricsLabel.isVisible()) {
+            this.metricsLabel.setText(this.metrics.describe(countNodes(this.shapePane)));
+        }
     }
 
     /**
-     * Rotates the sky (movement due to Earth's motion), then adds the appropriate amount of time that must have passed
-     * per degrees that the Earth has rotated. An additional small portion of time is subtracted to keep track of the
-     * orbit of the earth around the sun, since the stars in the North Celestial Dome changes as Earth's position changes.
-     * <p>
-     * Then the master time, kept in precise digits using BigDecimal, is truncated to a definite time in seconds by the
-     * Date class to display.
+     * Helper method to count a node and every node below it in the scene graph.
+     *
+     * @param node the node to start from
+     * @return the number of nodes
      */
-    private void updateCartoon() {
-        this.sky.rotate(Constants.ONE_RADIAN_CCW * Constants.MULTIPLIERS[this.multiplierIndex]);
-        double timeFractionPerTick = 2 * Math.PI / (-Constants.ONE_RADIAN_CCW * Constants.MULTIPLIERS[this.multiplierIndex]);
-        //motion due to rotation of the earth
-        this.masterTime = this.masterTime.add(new BigDecimal(Constants.DAY_LENGTH_MILLIS / timeFractionPerTick));
-        //motion due to orbit of the earth
-        this.masterTime = this.masterTime.subtract(new BigDecimal((Constants.DAY_LENGTH_MILLIS / 365.0) / timeFractionPerTick));
-        this.timeLabel.setText(new Date(this.masterTime.longValue()).toString());
+    private static int countNodes(Node node) {
+        int count = 1;
+        if (node instanceof Parent) {
+            for (Node child : ((Parent) node).getChildrenUnmodifiable()) {
+                count += countNodes(child);
+            }
+        }
+        return count;
     }
 
     /**
@@ -237,30 +233,41 @@ public class Cartoon {
      * definite set of multipliers that an index can traverse left and right across to speed up or slow down by
      * some factor.
      * <p>
-     * Spacebar simply pauses or starts the timeline.
+     * Spacebar simply pauses or starts the clock. C moves on to the next renderer, and O to the next observing site.
+     * All of these only change the selected view, and V moves on to selecting the next view. M shows or hides the
+     * performance metrics, and Z zooms the selected view back out to the whole dome (the mouse wheel zooms in).
      *
      * @param e
      */
     private void onKeyPressed(KeyEvent e) {
         KeyCode keyPressed = e.getCode();
+        SkyView view = this.views[this.selectedView];
         switch (keyPressed) {
             case RIGHT:
-                if (this.timeline.getStatus() == Animation.Status.PAUSED) return;
-                if (this.multiplierIndex < Constants.MULTIPLIERS.length - 1) {
-                    this.multiplierIndex++;
-                }
+                view.speedUp();
                 break;
             case LEFT:
-                if (this.timeline.getStatus() == Animation.Status.PAUSED) return;
-                if (this.multiplierIndex > 0) {
-                    this.multiplierIndex--;
-                }
+                view.slowDown();
                 break;
             case SPACE:
-                if (this.timeline.getStatus() == Animation.Status.PAUSED)
-                    this.timeline.play();
-                else
-                    this.timeline.pause();
+                view.togglePause();
+                break;
+            case C:
+                view.switchRenderer();
+                break;
+            case O:
+                view.switchSite();
+                break;
+            case V:
+                view.setSelected(false);
+                this.selectedView = (this.selectedView + 1) % this.views.length;
+                this.views[this.selectedView].setSelected(this.views.length > 1);
+                break;
+            case M:
+                this.metricsLabel.setVisible(!this.metricsLabel.isVisible());
+                break;
+            case Z:
+                view.resetZoom();
                 break;
             default:
                 break;
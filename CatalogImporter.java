@@ -0,0 +1,248 @@
+package cartoon;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Converts a star catalog in text form into the binary file read by StarCatalog. This only has to happen once (or
+ * again whenever the text files change), after which the program starts straight from the binary file.
+ * <p>
+ * The star file is a CSV file with a header row, in the layout of the HYG database or a CSV export of the Yale Bright
+ * Star Catalog. Fields may be put in double quotes (with a doubled quote standing for a quote inside them), so that
+ * they can hold commas, but each row has to be on one line. Columns are found by name, so any other columns are
+ * ignored:
+ * - ra: right ascension, in hours
+ * - dec: declination, in degrees
+ * - mag: apparent magnitude
+ * - hr: number in the Yale Bright Star Catalog, used by the lines file to refer to stars (may be empty)
+ * <p>
+ * The lines file has one asterism per line: its name, a '|', and then pairs of HR numbers, each pair being one line of
+ * the asterism. Empty lines and lines starting with '#' are skipped.
+ */
+public class CatalogImporter {
+
+    /**
+     * Reads the star and line files and writes them to the binary catalog file.
+     *
+     * @param starFile  CSV file of stars
+     * @param linesFile file of asterism lines
+     * @param catalog   binary catalog file to write
+     */
+    public static void importCatalog(Path starFile, Path linesFile, Path catalog) {
+        try {
+            List<float[]> stars = new ArrayList<>();
+            List<Integer> hrNumbers = new ArrayList<>();
+            Map<Integer, Integer> indexByHR = new HashMap<>();
+            readStars(starFile, stars, hrNumbers, indexByHR);
+
+            List<String> names = new ArrayList<>();
+            List<int[]> edges = new ArrayList<>();
+            readLines(linesFile, indexByHR, names, edges);
+
+            writeCatalog(catalog, stars, hrNumbers, names, edges);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not import star catalog from " + starFile, e);
+        }
+    }
+
+    /**
+     * Imports the catalog again if the binary file is missing or older than either of the text files.
+     *
+     * @param starFile  CSV file of stars
+     * @param linesFile file of asterism lines
+     * @param catalog   binary catalog file
+     */
+    public static void importIfStale(Path starFile, Path linesFile, Path catalog) {
+        try {
+            if (Files.exists(catalog)
+                    && Files.getLastModifiedTime(catalog).compareTo(Files.getLastModifiedTime(starFile)) >= 0
+                    && Files.getLastModifiedTime(catalog).compareTo(Files.getLastModifiedTime(linesFile)) >= 0) {
+                return;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not check star catalog " + catalog, e);
+        }
+        importCatalog(starFile, linesFile, catalog);
+    }
+
+    /**
+     * Helper method to read every star of the CSV file as {ra (radians), dec (radians), mag}, along with its HR
+     * number. A file without a header row is rejected.
+     */
+    private static void readStars(Path starFile, List<float[]> stars, List<Integer> hrNumbers,
+                                  Map<Integer, Integer> indexByHR) throws IOException {
+        try (BufferedReader reader = Files.newBufferedReader(starFile, StandardCharsets.UTF_8)) {
+            String headerRow = reader.readLine();
+            if (headerRow == null || headerRow.trim().isEmpty()) {
+                throw new IOException(starFile + " is empty, it needs a header row naming its columns");
+            }
+            String[] header = splitRow(headerRow);
+            int raColumn = findColumn(header, "ra", starFile);
+            int decColumn = findColumn(header, "dec", starFile);
+            int magColumn = findColumn(header, "mag", starFile);
+            int hrColumn = findColumn(header, "hr", starFile);
+
+            String row;
+            int lineNumber = 1;
+            while ((row = reader.readLine()) != null) {
+                lineNumber++;
+                String[] fields = splitRow(row);
+                if (fields.length < header.length || fields[raColumn].isEmpty() || fields[decColumn].isEmpty()
+                        || fields[magColumn].isEmpty()) {
+                    continue;
+                }
+                try {
+                    int hr = fields[hrColumn].isEmpty() ? 0 : (int) Double.parseDouble(fields[hrColumn]);
+                    float[] star = {
+                            (float) Math.toRadians(Double.parseDouble(fields[raColumn]) * 15.0),
+                            (float) Math.toRadians(Double.parseDouble(fields[decColumn])),
+                            Float.parseFloat(fields[magColumn])};
+                    if (hr != 0) {
+                        indexByHR.put(hr, stars.size());
+                    }
+                    hrNumbers.add(hr);
+                    stars.add(star);
+                } catch (NumberFormatException e) {
+                    throw new IOException(starFile + ", line " + lineNumber + ": bad number (" + e.getMessage() + ")",
+                            e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Helper method to split one row of the CSV file into its fields, taking the double quotes off quoted fields.
+     * Commas inside quotes belong to the field, and two quotes in a row inside quotes stand for one quote.
+     */
+    private static String[] splitRow(String row) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < row.length(); i++) {
+            char c = row.charAt(i);
+            if (quoted) {
+                if (c != '"') {
+                    field.append(c);
+                } else if (i + 1 < row.length() && row.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else {
+                    quoted = false;
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString());
+        return fields.toArray(new String[0]);
+    }
+
+    /**
+     * Helper method to find the index of a column by its (case insensitive) name.
+     */
+    private static int findColumn(String[] header, String name, Path file) throws IOException {
+        for (int i = 0; i < header.length; i++) {
+            if (header[i].trim().equalsIgnoreCase(name)) {
+                return i;
+            }
+        }
+        throw new IOException(file + " has no column named " + name + " in its header row");
+    }
+
+    /**
+     * Helper method to read every asterism of the lines file, turning HR numbers into star indices.
+     */
+    private static void readLines(Path linesFile, Map<Integer, Integer> indexByHR, List<String> names,
+                                  List<int[]> edges) throws IOException {
+        List<String> lines = Files.readAllLines(linesFile, StandardCharsets.UTF_8);
+        for (int lineNumber = 1; lineNumber <= lines.size(); lineNumber++) {
+            String line = lines.get(lineNumber - 1).trim();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            int separator = line.indexOf('|');
+            String[] numbers = line.substring(separator + 1).trim().split("\\s+");
+            if (separator < 0 || numbers.length % 2 != 0) {
+                throw new IllegalArgumentException("Bad asterism definition in " + linesFile + ": " + line);
+            }
+            int[] asterismEdges = new int[numbers.length];
+            for (int i = 0; i < numbers.length; i++) {
+                Integer index;
+                try {
+                    index = indexByHR.get(Integer.parseInt(numbers[i]));
+                } catch (NumberFormatException e) {
+                    throw new IOException(linesFile + ", line " + lineNumber + ": bad HR number " + numbers[i], e);
+                }
+                if (index == null) {
+                    throw new IllegalArgumentException("No star with HR number " + numbers[i] + " for " + line);
+                }
+                asterismEdges[i] = index;
+            }
+            names.add(line.substring(0, separator).trim());
+            edges.add(asterismEdges);
+        }
+    }
+
+    /**
+     * Helper method to write the binary catalog file in the layout described in StarCatalog. The catalog is written to
+     * a temporary file next to it first, which then replaces it in one step, so a program reading the catalog never
+     * sees half of a file, and a failed import leaves the old catalog as it was.
+     */
+    private static void writeCatalog(Path catalog, List<float[]> stars, List<Integer> hrNumbers, List<String> names,
+                                     List<int[]> edges) throws IOException {
+        Path directory = catalog.toAbsolutePath().getParent();
+        Path temporary = Files.createTempFile(directory, catalog.getFileName().toString(), ".tmp");
+        try {
+            writeCatalogFile(temporary, stars, hrNumbers, names, edges);
+            Files.move(temporary, catalog, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    /**
+     * Helper method to write the contents of the binary catalog file.
+     */
+    private static void writeCatalogFile(Path file, List<float[]> stars, List<Integer> hrNumbers, List<String> names,
+                                         List<int[]> edges) throws IOException {
+        try (OutputStream stream = Files.newOutputStream(file);
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(stream))) {
+            out.writeInt(StarCatalog.MAGIC);
+            out.writeInt(StarCatalog.VERSION);
+            out.writeInt(stars.size());
+            out.writeInt(names.size());
+            for (int i = 0; i < stars.size(); i++) {
+                out.writeFloat(stars.get(i)[0]);
+                out.writeFloat(stars.get(i)[1]);
+                out.writeFloat(stars.get(i)[2]);
+                out.writeInt(hrNumbers.get(i));
+            }
+            for (int i = 0; i < names.size(); i++) {
+                byte[] name = names.get(i).getBytes(StandardCharsets.UTF_8);
+                out.writeShort(name.length);
+                out.write(name);
+                out.writeInt(edges.get(i).length / 2);
+                for (int index : edges.get(i)) {
+                    out.writeInt(index);
+                }
+            }
+        }
+    }
+}
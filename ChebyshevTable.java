@@ -0,0 +1,144 @@
+package cartoon;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Stands in for a few slowly changing functions of time that are expensive to evaluate, such as the angles of
+ * precession and nutation. Time is cut into segments of equal length, and over each segment every function is
+ * replaced by a Chebyshev polynomial fitted to it, so evaluating the functions at any time only takes one short
+ * polynomial per function, no matter how many terms the original series has.
+ * <p>
+ * A segment is fitted the first time a time inside it is asked for, and kept in a table with a fixed number of
+ * slots (segment n goes into slot n modulo the size of the table). Moving through time therefore only fits a new
+ * segment whenever a segment boundary is crossed, and the memory used never grows, no matter how far in time the
+ * sky is moved. Fitted segments never change, so the table can be read by any number of threads at once: the worst
+ * that can happen is two threads fitting the same segment.
+ */
+public class ChebyshevTable {
+    private final double segmentDays;
+    private final int degree;
+    private final int functionCount;
+    private final Functions functions;
+    private final AtomicReferenceArray<Segment> segments;
+    private final double[] nodes; //where the functions are sampled, from -1 to 1
+    private final double[] basis; //cos(pi * j * (k + 0.5) / (degree + 1)), row j and column k
+
+    /**
+     * The functions a table stands in for.
+     */
+    public interface Functions {
+        /**
+         * @param daysSinceJ2000 the time, in days since noon on January 1, 2000
+         * @param values         array to write the value of each function into
+         */
+        void evaluate(double daysSinceJ2000, double[] values);
+    }
+
+    /**
+     * The coefficients of one segment, function after function, lowest power first.
+     */
+    private static class Segment {
+        private final long number;
+        private final double[] coefficients;
+
+        private Segment(long number, double[] coefficients) {
+            this.number = number;
+            this.coefficients = coefficients;
+        }
+    }
+
+    /**
+     * @param segmentDays   length of each segment, in days
+     * @param degree        degree of the polynomial fitted over each segment
+     * @param functionCount number of functions
+     * @param slots         number of segments kept at once
+     * @param functions     the functions
+     */
+    public ChebyshevTable(double segmentDays, int degree, int functionCount, int slots, Functions functions) {
+        this.segmentDays = segmentDays;
+        this.degree = degree;
+        this.functionCount = functionCount;
+        this.functions = functions;
+        this.segments = new AtomicReferenceArray<>(slots);
+
+        int length = degree + 1;
+        this.nodes = new double[length];
+        this.basis = new double[length * length];
+        for (int k = 0; k < length; k++) {
+            this.nodes[k] = Math.cos(Math.PI * (k + 0.5) / length);
+            for (int j = 0; j < length; j++) {
+                this.basis[j * length + k] = Math.cos(Math.PI * j * (k + 0.5) / length);
+            }
+        }
+    }
+
+    /**
+     * Evaluates one of the functions at the given time, fitting the segment it falls in if it is not in the table
+     * yet.
+     *
+     * @param daysSinceJ2000 the time, in days since noon on January 1, 2000
+     * @param function       index of the function
+     * @return the value of the function
+     */
+    public double evaluate(double daysSinceJ2000, int function) {
+        long number = (long) Math.floor(daysSinceJ2000 / this.segmentDays);
+        int slot = (int) Math.floorMod(number, (long) this.segments.length());
+        Segment segment = this.segments.get(slot);
+        if (segment == null || segment.number != number) {
+            segment = this.fit(number);
+            this.segments.set(slot, segment);
+        }
+
+        //position within the segment, from -1 at its start to 1 at its end
+        double x = 2 * (daysSinceJ2000 / this.segmentDays - number) - 1;
+        return clenshaw(segment.coefficients, function * (this.degree + 1), this.degree + 1, x);
+    }
+
+    /**
+     * Helper method to fit every function over a segment, by evaluating them at the Chebyshev nodes of the segment.
+     * Fitting at these points keeps the largest error over the segment close to the smallest any polynomial of the
+     * same degree can have.
+     *
+     * @param number the segment
+     * @return the fitted segment
+     */
+    private Segment fit(long number) {
+        int length = this.degree + 1;
+        double[][] samples = new double[length][this.functionCount];
+        for (int k = 0; k < length; k++) {
+            this.functions.evaluate((number + (this.nodes[k] + 1) / 2) * this.segmentDays, samples[k]);
+        }
+
+        double[] coefficients = new double[this.functionCount * length];
+        for (int f = 0; f < this.functionCount; f++) {
+            for (int j = 0; j < length; j++) {
+                double sum = 0;
+                for (int k = 0; k < length; k++) {
+                    sum += samples[k][f] * this.basis[j * length + k];
+                }
+                coefficients[f * length + j] = (j == 0 ? 1.0 : 2.0) * sum / length;
+            }
+        }
+        return new Segment(number, coefficients);
+    }
+
+    /**
+     * Helper method to evaluate a Chebyshev series with Clenshaw's recurrence, which needs no powers or trig.
+     *
+     * @param coefficients array holding the coefficients
+     * @param offset       index of the lowest coefficient of the series
+     * @param length       number of coefficients
+     * @param x            the point, between -1 and 1
+     * @return the value of the series at x
+     */
+    private static double clenshaw(double[] coefficients, int offset, int length, double x) {
+        double b1 = 0;
+        double b2 = 0;
+        for (int j = length - 1; j > 0; j--) {
+            double b0 = 2 * x * b1 - b2 + coefficients[offset + j];
+            b2 = b1;
+            b1 = b0;
+        }
+        return x * b1 - b2 + coefficients[offset];
+    }
+}
@@ -1,8 +1,5 @@
 package cartoon;
 
-import javafx.geometry.Point2D;
-import javafx.scene.shape.Line;
-
 
 public class Constants {
     public static final int APP_WIDTH = 700;
@@ -12,180 +9,156 @@ public class Constants {
     public static final String QUIT_BUTTON = "Quit";
     public static final String INTRODUCTION_STRING = "Welcome to the Planetarium! This program shows the exact" +
             " locations of the brightest\n Asterisms at the exact time and date displayed, as seen from Providence, " +
-            "Rhode Island.";
+            "Rhode Island,\n or any of the other observing sites.";
     public static final String INSTRUCTION_STRING = "Instructions: Space to pause, Right arrow key to " +
-            "increase speed forward in time, Left arrow key to increase speed backwards in time";
-
-    public static final double VERT_FOV = 180;
-    public static final double SCALE_FACTOR = CARTOON_PANE_HEIGHT / VERT_FOV;
+            "increase speed forward in time, Left arrow key to increase speed backwards in time,\n C to switch " +
+            "between drawing with shapes and on a canvas, O to move on to the next " +
+            "observing site, V to select the next view, M to show performance metrics,\n the mouse wheel to zoom, " +
+            "dragging to pan, Z to zoom back out";
 
     public static final double ONE_RADIAN_CCW = -1 * (Math.PI / 180.0); //negative value to rotate counter clockwise
-    public static final double KEYFRAME_DURATION = .05;
+    //real time, in seconds, the sky takes to turn by ONE_RADIAN_CCW at a multiplier of 1
+    public static final double TURN_DURATION = .05;
     public static final long DAY_LENGTH_MILLIS = 86400000L;
+    //one full turn of the sky takes a day minus the 1/365 day shift due to the orbit of the earth
+    public static final double SIDEREAL_DAY_NANOS = DAY_LENGTH_MILLIS * 1000000.0 * (1 - 1 / 365.0);
+    //offset in milliseconds of 10/19/21 12:00:00 AM (EDT) from 1970, the time the program starts at
+    public static final long EPOCH_MILLIS = 1634616000000L;
 
     public static final double[] MULTIPLIERS = {-16, -8, -4, -2, -1, -.5, -.125, -.05, 0, .05, .125, .5, 1, 2, 4, 8, 16};
     public static final int INITIAL_MULTIPLIER_INDEX = 11;
 
-    public static final int NUM_ASTERISMS = 8;
+    //0 draws the sky with one node per element, 1 draws it onto a single canvas (which scales to far more stars),
+    //2 draws it with one node per element inside a single rotated group, which is only there if GROUP_RENDERER is
+    //true
+    public static final int INITIAL_RENDERER_INDEX = 0;
+
+    //time between frames of a 60 Hz screen, frames further apart than one and a half of these count as dropped
+    public static final long FRAME_NANOS = 16666667L;
+    //the performance metrics are summed up and shown over windows of this length, with the time between frames
+    //sorted into a histogram of this many buckets of this width (longer frames go into the last bucket)
+    public static final long METRICS_WINDOW_NANOS = 1000000000L;
+    public static final long METRICS_BUCKET_NANOS = 100000L;
+    public static final int METRICS_HISTOGRAM_BUCKETS = 1000;
+
+    //number of views of the sky shown side by side, unless another number (at most MAX_VIEW_COUNT) is given on the
+    //command line
+    public static final int VIEW_COUNT = 1;
+    public static final int MAX_VIEW_COUNT = 16;
+
+    //files the stars and asterisms are read from, the binary catalog is created from the other two when needed
+    public static final String STAR_FILE = "data/stars.csv";
+    public static final String ASTERISM_FILE = "data/asterisms.txt";
+    public static final String CATALOG_FILE = "data/catalog.bin";
 
     /**
      * COORDINATE DEFINITIONS:
-     * I will be using Alt-Az coordinates to describe the locations of stars. I would like the app frame to show
-     * the entire celestial Dome. Since the NCP in Providence, Rhode Island is at approximately 0/40 az./alt,
-     * I will arbitrarily decide 0 degrees azimuth to be in the horizontal center of the app window, and 90 degrees
-     * altitude to be at the bottom of the app window.
-     *
-     * Alt-Az Coordinates of Stars is given at approximately an initial time of 12 am in mid-October.
-     * Data was collected from the free software *Stellarium*
+     * Stars are stored in the catalog by their Right Ascension and Declination, which do not change as the Earth
+     * rotates. At any given time they are converted to Alt-Az coordinates as seen from the observer, which starts out
+     * in Providence, Rhode Island.
+     * I would like the app frame to show the entire celestial Dome. Since the NCP in Providence is at approximately
+     * 0/41.8 az./alt, I will arbitrarily decide 0 degrees azimuth to be in the horizontal center of the app window,
+     * with 90 degrees altitude in the middle of each view and the horizon as large a circle as fits (see Viewport).
      *
-     * Transformations will be performed in the Asterism Class.
+     * Transformations will be performed in the EphemerisEngine Class.
      */
 
-
-    /**
-     * THE FOLLOWING ARE INTIIAL COORDINATE DEFINITIONS FOR THE STARS IN EACH ASTERISM OR CONSTELLATION.
-     */
-
-    public static final double ZENITH_ALTITUDE = 90.0;
-
-    //define zenith
-    public static final double ZENITH_X = APP_WIDTH / 2;
-    public static final double ZENITH_Y = CARTOON_PANE_HEIGHT - ZENITH_ALTITUDE * SCALE_FACTOR;
-
-    //define Celestial Pole Coordinates
-    public static final double NCP_X = APP_WIDTH / 2;
-    public static final double NCP_Y = CARTOON_PANE_HEIGHT - 41.8 * SCALE_FACTOR;
-
-    //define Little Dipper
-    public static final Point2D POLARIS = new Point2D(0, 42);
-    public static final Point2D YILDUN = new Point2D(356, 40);
-    public static final Point2D EUMI = new Point2D(352, 37);
-    public static final Point2D ZUMI = new Point2D(351, 32);
-    public static final Point2D HUMI = new Point2D(347, 31);
-    public static final Point2D PHERKAD = new Point2D(349, 26);
-    public static final Point2D KOCHAB = new Point2D(352, 27);
-
-    public static final Line PO_YI = new Line(0, 42, 356, 40);
-    public static final Line YI_EU = new Line(356, 40, 352, 37);
-    public static final Line EU_ZU = new Line(352, 37, 351, 32);
-    public static final Line ZU_HU = new Line(351, 32, 347, 31);
-    public static final Line HU_PH = new Line(347, 31, 349, 26);
-    public static final Line PH_KO = new Line(349, 26, 352, 27);
-    public static final Line KO_ZU = new Line(352, 27, 351, 32);
-
-    public static final Point2D[] UMISTARS = {POLARIS, YILDUN, EUMI, ZUMI, HUMI, PHERKAD, KOCHAB};
-    public static final Line[] UMILINES = {PO_YI, YI_EU, EU_ZU, ZU_HU, HU_PH, PH_KO, KO_ZU};
-
-    //define Big Dipper
-    public static final Point2D ALKAID = new Point2D(353, 2);
-    public static final Point2D MIZAR = new Point2D(357, 7);
-    public static final Point2D ALIOTH = new Point2D(2, 8);
-    public static final Point2D MEGREZ = new Point2D(7, 9);
-    public static final Point2D PHECDA = new Point2D(11, 6);
-    public static final Point2D DUBHE = new Point2D(14, 16);
-    public static final Point2D MERAK = new Point2D(15, 10);
-
-    public static final Line AL_MI = new Line(353, 2, 357, 7);
-    public static final Line MI_AL = new Line(357, 7, 2, 8);
-    public static final Line AL_MEG = new Line(2, 8, 7, 9);
-    public static final Line MEG_PH = new Line(7, 9, 11, 6);
-    public static final Line PH_MER = new Line(11, 6, 15, 10);
-    public static final Line MER_DU = new Line(15, 10, 14, 16);
-    public static final Line DU_MEG = new Line(14, 16, 7, 9);
-
-    public static final Point2D[] UMASTARS = {ALKAID, MIZAR, ALIOTH, MEGREZ, PHECDA, DUBHE, MERAK};
-    public static final Line[] UMALINES = {AL_MI, MI_AL, AL_MEG, MEG_PH, PH_MER, MER_DU, DU_MEG};
-
-    //define Summer Triangle
-    public static final Point2D VEGA = new Point2D(304, 20);
-    public static final Point2D ALTAIR = new Point2D(269, 14);
-    public static final Point2D DENEB = new Point2D(297, 43);
-
-    public static final Line VE_AL = new Line(304, 20, 269, 14);
-    public static final Line AL_DE = new Line(269, 14, 297, 43);
-    public static final Line DE_VE = new Line(297, 43, 304, 20);
-
-    public static final Point2D[] SUMMERTRIANGLESTARS = {VEGA, ALTAIR, DENEB};
-    public static final Line[] SUMMERTRIANGLELINES = {VE_AL, AL_DE, DE_VE};
-
-    //defin Cassiopeia
-    public static final Point2D CAPH = new Point2D(338, 70);
-    public static final Point2D SHEDAR = new Point2D(347, 74);
-    public static final Point2D NAVI = new Point2D(357, 70);
-    public static final Point2D RUCHBAH = new Point2D(8, 71);
-    public static final Point2D SEGIN = new Point2D(14, 66);
-
-    public static final Line CA_SH = new Line(338, 70, 347, 74);
-    public static final Line SH_NA = new Line(347, 74, 357, 70);
-    public static final Line NA_RU = new Line(357, 70, 8, 71);
-    public static final Line RU_SE = new Line(8, 71, 14, 66);
-
-    public static final Point2D[] CASSTARS = {CAPH, SHEDAR, NAVI, RUCHBAH, SEGIN};
-    public static final Line[] CASLINES = {CA_SH, SH_NA, NA_RU, RU_SE};
-
-    //define Spring Triangle
-    public static final Point2D ARCTURUS = new Point2D(341, -26);
-    public static final Point2D SPICA = new Point2D(350, -59);
-    public static final Point2D DENEBOLA = new Point2D(21, -31);
-
-    public static final Line AR_SP = new Line(341, -26, 350, -59);
-    public static final Line SP_DE = new Line(350, -59, 21, -31);
-    public static final Line DE_AR = new Line(21, -31, 341, -26);
-
-    public static final Point2D[] SPRINGTRIANGLESTARS = {ARCTURUS, SPICA, DENEBOLA};
-    public static final Line[] SPRINGTRIANGLELINES = {AR_SP, SP_DE, DE_AR};
-
-    //define Great Square
-    public static final Point2D ALPHERATZ = new Point2D(227, 73);
-    public static final Point2D SCHEAT = new Point2D(251, 62);
-    public static final Point2D MARKAB = new Point2D(233, 53);
-    public static final Point2D ALGENIB = new Point2D(207, 61);
-
-    public static final Line ALPH_SC = new Line(227, 73, 251, 62);
-    public static final Line SC_MA = new Line(251, 62, 233, 53);
-    public static final Line MA_ALGE = new Line(233, 53, 207, 61);
-    public static final Line ALGE_ALPH = new Line(207, 61, 227, 73);
-
-    public static final Point2D[] GREATSQUARESTARS = {ALPHERATZ, SCHEAT, MARKAB, ALGENIB};
-    public static final Line[] GREATSQUARELINES = {ALPH_SC, SC_MA, MA_ALGE, ALGE_ALPH};
-
-    //define Winter Hexagon
-    public static final Point2D CAPELLA = new Point2D(62, 46);
-    public static final Point2D POLLUX = new Point2D(62, 11);
-    public static final Point2D PROCYON = new Point2D(80, -2);
-    public static final Point2D SIRIUS = new Point2D(106, -8);
-    public static final Point2D RIGEL = new Point2D(115, 14);
-    public static final Point2D ALDEBARAN = new Point2D(103, 38);
-
-    public static final Line CA_PO = new Line(62, 46, 62, 11);
-    public static final Line PO_PR = new Line(62, 11, 80, -2);
-    public static final Line PR_SI = new Line(80, -2, 106, -8);
-    public static final Line SI_RI = new Line(106, -8, 115, 14);
-    public static final Line RI_AL = new Line(115, 14, 103, 38);
-    public static final Line AL_CA = new Line(103, 38, 62, 46);
-
-    public static final Point2D[] WINTERHEXAGONSTARS = {CAPELLA, POLLUX, PROCYON, SIRIUS, RIGEL, ALDEBARAN};
-    public static final Line[] WINTERHEXAGONLINES = {CA_PO, PO_PR, PR_SI, SI_RI, RI_AL, AL_CA};
-
-    //define Orion
-    public static final Point2D BETELGEUSE = new Point2D(96, 18);
-    public static final Point2D BELLATRIX = new Point2D(102, 23);
-    public static final Point2D SAIPH = new Point2D(110, 8);
-    public static final Point2D ALNITAK = new Point2D(106, 14);
-    public static final Point2D ALNILAM = new Point2D(106, 16);
-    public static final Point2D MINTAKA = new Point2D(106, 17);
-
-    public static final Line BET_ALNIT = new Line(96, 18, 106, 14);
-    public static final Line ALNIT_SA = new Line(106, 14, 110, 8);
-    public static final Line SA_RI = new Line(110, 8, 115, 14);
-    public static final Line RI_MI = new Line(115, 14, 106, 17);
-    public static final Line MI_BEL = new Line(106, 17, 102, 23);
-    public static final Line ALNIT_ALNIL = new Line(106, 14, 106, 16);
-    public static final Line ALNIL_MI = new Line(106, 16, 106, 17);
-    public static final Line BEL_BET = new Line(102, 23, 96, 18);
-
-    public static final Point2D[] ORIONSTARS = {BETELGEUSE, BELLATRIX, RIGEL, SAIPH, ALNILAM, ALNITAK, MINTAKA};
-    public static final Line[] ORIONLINES = {BET_ALNIT, ALNIT_SA, SA_RI, RI_MI, MI_BEL, ALNIT_ALNIL, ALNIL_MI, BEL_BET};
-
-
+    //location of the observer (Providence, RI), in degrees. Longitude is positive to the east
+    public static final double LATITUDE = 41.8;
+    public static final double LONGITUDE = -71.4;
+
+    //J2000, noon on January 1, 2000, which the catalog directions and sidereal time are counted from
+    public static final long J2000_MILLIS = 946728000000L;
+
+    //precession and nutation are fitted with Chebyshev polynomials of this degree over segments of this many days,
+    //and this many segments of each are kept (see ChebyshevTable). Precession is itself a polynomial of degree 5,
+    //so its fit is exact
+    public static final double PRECESSION_SEGMENT_DAYS = 36525;
+    public static final int PRECESSION_DEGREE = 5;
+    public static final int PRECESSION_SEGMENTS = 64;
+    public static final double NUTATION_SEGMENT_DAYS = 16;
+    public static final int NUTATION_DEGREE = 11;
+    public static final int NUTATION_SEGMENTS = 1024;
+
+    //observing sites O switches between, the first is the one the program starts at. Longitude is positive to the east
+    public static final String[] SITE_NAMES = {"Providence, RI", "Reykjavik", "Quito", "Cape Town", "Sydney"};
+    public static final double[] SITE_LATITUDES = {LATITUDE, 64.1, -0.2, -33.9, -33.9};
+    public static final double[] SITE_LONGITUDES = {LONGITUDE, -21.9, -78.5, 18.4, 151.2};
+    //transforms are kept for this many observers, the least recently used is dropped once there are more
+    public static final int OBSERVER_CACHE_SIZE = 8;
+
+    //the sky index cuts the sky into this many bands of declination, and about twice as many cells around each band
+    public static final int INDEX_DECLINATION_BANDS = 36;
+    //stars are moved and drawn until they are this far below the horizon, so that the group renderer (which only
+    //places its stars every GROUP_REBASE_RADIANS) never leaves out a star that has risen in the meantime
+    public static final double CULLING_MARGIN_DEGREES = 5;
+
+    //each view can be zoomed in up to this many times, by this factor per step of the mouse wheel
+    public static final double MAX_ZOOM = 32;
+    public static final double ZOOM_STEP = 1.25;
+    //the sky is only computed again once the window has kept the same size for this long, while it is being resized
+    //the frame on the screen is just scaled to every new size
+    public static final double RESIZE_DEBOUNCE_MILLIS = 150;
+    //points along each edge of a zoomed in view that are turned back into directions, to find the part of the sky
+    //it shows
+    public static final int VIEWPORT_CULLING_SAMPLES = 16;
+    //from each of these zooms on, stars up to the magnitude at the same place are drawn (see Viewport). Each tier is
+    //1.2 magnitudes fainter, about 3.6 times as many stars, for a quarter of the sky, so the number drawn stays roughly
+    //the same. The lines of the asterisms are always drawn
+    public static final double[] LOD_ZOOMS = {1, 2, 4, 8, 16};
+    public static final double[] LOD_MAGNITUDES = {6.5, 7.7, 8.9, 10.1, Double.POSITIVE_INFINITY};
+
+    //size of an asterism name at the font size it is drawn in, estimated from its number of characters, the gap
+    //kept between names, and the most times overlapping names are pushed apart in a frame (see LabelLayout)
+    public static final double LABEL_CHARACTER_WIDTH = 5.5;
+    public static final double LABEL_HEIGHT = 12;
+    public static final double LABEL_GAP = 2;
+    public static final int LABEL_LAYOUT_PASSES = 8;
+
+    //true projects stars onto the screen one at a time with calculateR, transformX and transformY, rather than with
+    //the bulk kernel (see ProjectionKernel)
+    public static final boolean SCALAR_PROJECTION = false;
+
+    //frames with at least this many stars to move are split across the compute pool, in ranges of at most this size
+    public static final int PARALLEL_STARS = 20000;
+    //batch computations are split into blocks of at most this many star positions (times multiplied by stars)
+    public static final int EPHEMERIS_BLOCK = 16384;
+
+    //the event solver samples each day this often, then narrows every crossing down to this many milliseconds
+    public static final double SOLVER_STEP_MINUTES = 10;
+    public static final double SOLVER_TOLERANCE_MILLIS = 1000;
+    //each parallel task of the event solver solves at most this many asterism-days
+    public static final int SOLVER_BLOCK_DAYS = 32;
+    //the event solver keeps this many asterism-days, the least recently used is dropped once there are more
+    public static final int SOLVER_CACHE_SIZE = 4096;
+    //altitude, in degrees, an asterism has to be fully above to be easy to see, unless another is asked for
+    public static final double SOLVER_DEFAULT_ALTITUDE = 20;
+
+    //time-lapse exports step this far through time between frames and are written into this directory, unless told
+    //otherwise, with at most this many frames (and images) on their way through the pipeline at once
+    public static final double EXPORT_STEP_MINUTES = 2;
+    public static final String EXPORT_DIRECTORY = "export";
+    public static final int EXPORT_FRAMES_IN_FLIGHT = 2 * Runtime.getRuntime().availableProcessors();
+
+    //stars are drawn from one sprite per band of magnitude (see StarSprites): this many bands from the brightest to
+    //the faintest magnitude, with disks growing from the smallest radius for the faintest band up to at most the
+    //largest, in pixels, and a glow of this opacity out to this many times the radius
+    public static final int SPRITE_BUCKETS = 16;
+    public static final double SPRITE_BRIGHTEST_MAGNITUDE = -1.5;
+    public static final double SPRITE_FAINTEST_MAGNITUDE = 6.5;
+    public static final double SPRITE_MIN_RADIUS = 0.7;
+    public static final double SPRITE_MAX_RADIUS = 4;
+    public static final double SPRITE_GLOW_FACTOR = 3;
+    public static final double SPRITE_GLOW_ALPHA = 0.35;
+
+    //stars are found under the mouse through a grid of square cells this many pixels wide, and are found when the
+    //mouse is at most this many pixels away
+    public static final double PICK_CELL_SIZE = 8;
+    public static final double PICK_DISTANCE = 6;
+
+    //the group renderer only approximates the sky (see GroupRenderer), so C only switches to it if this is true
+    public static final boolean GROUP_RENDERER = false;
+    //the group renderer places its nodes again once the sky has turned this far since they were last placed, by when
+    //the stars are a pixel or two (up to about 3 near the equator) from where they should be on average
+    public static final double GROUP_REBASE_RADIANS = Math.toRadians(1);
 }
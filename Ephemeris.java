@@ -0,0 +1,97 @@
+package cartoon;
+
+/**
+ * The result of a batch computation by the EphemerisEngine: the Altitude and Azimuth of a set of stars at a set of
+ * times, as seen by one observer. Values are kept as floats in one flat array per coordinate (a millionth of a degree
+ * is far finer than anything drawn), so a year of hourly positions of a few hundred stars fits in a few megabytes.
+ */
+public class Ephemeris {
+    private final Observer observer;
+    private final double[] times;
+    private final int[] stars;
+    private final float[] altitude; //altitude of stars[s] at times[t] is at index t * stars.length + s
+    private final float[] azimuth;
+
+    /**
+     * @param observer where the positions are seen from
+     * @param times    the times, in milliseconds since 1970
+     * @param stars    catalog indices of the stars
+     */
+    public Ephemeris(Observer observer, double[] times, int[] stars) {
+        this.observer = observer;
+        this.times = times;
+        this.stars = stars;
+        long size = (long) times.length * stars.length;
+        if (size > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Too many positions for one ephemeris: " + size);
+        }
+        this.altitude = new float[(int) size];
+        this.azimuth = new float[(int) size];
+    }
+
+    /**
+     * Sets the position of a star at a time.
+     *
+     * @param time      index of the time
+     * @param star      index of the star in this ephemeris (not in the catalog)
+     * @param altitude  Altitude, in degrees
+     * @param azimuth   Azimuth, in degrees
+     */
+    public void setPosition(int time, int star, double altitude, double azimuth) {
+        this.altitude[time * this.stars.length + star] = (float) altitude;
+        this.azimuth[time * this.stars.length + star] = (float) azimuth;
+    }
+
+    /**
+     * Getters. Time is the index of the time, star the index of the star in this ephemeris.
+     */
+
+    public Observer getObserver() {
+        return this.observer;
+    }
+
+    public int getTimeCount() {
+        return this.times.length;
+    }
+
+    public double getTime(int time) {
+        return this.times[time];
+    }
+
+    public int getStarCount() {
+        return this.stars.length;
+    }
+
+    /**
+     * @return the catalog index of the star
+     */
+    public int getStar(int star) {
+        return this.stars[star];
+    }
+
+    public double getAltitude(int time, int star) {
+        return this.altitude[time * this.stars.length + star];
+    }
+
+    public double getAzimuth(int time, int star) {
+        return this.azimuth[time * this.stars.length + star];
+    }
+
+    /**
+     * @param viewport the part of the dome shown
+     * @return X value of the star's position on the screen
+     */
+    public double getX(int time, int star, Viewport viewport) {
+        double r = EphemerisEngine.calculateR(this.getAltitude(time, star), viewport);
+        return EphemerisEngine.transformX(this.getAzimuth(time, star), r, viewport);
+    }
+
+    /**
+     * @param viewport the part of the dome shown
+     * @return Y value of the star's position on the screen
+     */
+    public double getY(int time, int star, Viewport viewport) {
+        double r = EphemerisEngine.calculateR(this.getAltitude(time, star), viewport);
+        return EphemerisEngine.transformY(this.getAzimuth(time, star), r, viewport);
+    }
+}
@@ -0,0 +1,373 @@
+package cartoon;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * All of the math that turns the catalog into positions in the sky, without any JavaFX. Given a NightSky (the stars
+ * and asterisms), an Observer and a time, it works out the Altitude and Azimuth of each star and where it ends up on
+ * the screen. It is used both by the program itself (through the SkySimulator, one frame at a time) and for batch
+ * computations over many times, such as a year of hourly skies.
+ * <p>
+ * Work is split with fork-join: a single frame with many stars is split into ranges of stars, and a batch is split
+ * into blocks of times and stars, until each block is small enough to run on its own. Every task only writes its own
+ * part of the result, so no locks are needed. Nothing in the engine changes once it is built, so any number of
+ * threads can use it at once.
+ */
+public class EphemerisEngine {
+    private final NightSky sky;
+    private final ForkJoinPool pool;
+
+    /**
+     * Creates an engine that runs its work on the common fork-join pool.
+     *
+     * @param sky the stars and asterisms to compute
+     */
+    public EphemerisEngine(NightSky sky) {
+        this(sky, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * @param sky  the stars and asterisms to compute
+     * @param pool the pool the work is split across
+     */
+    public EphemerisEngine(NightSky sky, ForkJoinPool pool) {
+        this.sky = sky;
+        this.pool = pool;
+    }
+
+    /**
+     * Fills the frame with every star above the horizon where it is at the given time. The position is computed
+     * directly from the time rather than by adding up a small rotation every tick, so rounding errors never pile up
+     * and any date can be jumped to directly.
+     * <p>
+     * Every star's hour angle is the local sidereal time minus its Right Ascension, so the turn of the sky, the
+     * observer's latitude and the precession of the Earth's axis since the catalog's epoch (see PrecessionNutation)
+     * are combined into a single rotation once per call (see ObserverTransform), and each star's
+     * fixed direction only has to be rotated into Alt-Az coordinates and projected onto the screen, which is done for
+     * whole ranges of stars at once by a ProjectionKernel. Stars in parts of the sky
+     * that are entirely below the horizon (more than Constants.CULLING_MARGIN_DEGREES below it) are skipped.
+     * <p>
+     * When zoomed in (see Viewport), only the part of the sky in the view is searched for, and only the stars of the
+     * tier of magnitudes that goes with the zoom are moved, the brightest of them coming first in every cell.
+     * <p>
+     * The visible stars are then sorted into the frame's ScreenGrid, so they can be found by their position on the
+     * screen (for the mouse) without looking at all of them.
+     * <p>
+     * Lines are not moved themselves, they simply read the positions of the two stars they connect. Only the
+     * positions are computed here, a SkyRenderer then draws them. Everything is written into the frame and nothing
+     * into the sky itself, so this can be called from any thread, as long as no other thread uses the same frame.
+     *
+     * @param epochMillis the time to show, in milliseconds since 1970
+     * @param observer    where the sky is seen from
+     * @param frame       the frame to fill
+     */
+    public void computeFrame(double epochMillis, Observer observer, SkyFrame frame) {
+        this.computeFrame(epochMillis, observer, Viewport.WHOLE_SKY, frame);
+    }
+
+    /**
+     * Fills the frame with every star in the given part of the dome, see computeFrame above.
+     *
+     * @param epochMillis the time to show, in milliseconds since 1970
+     * @param observer    where the sky is seen from
+     * @param viewport    the part of the dome shown
+     * @param frame       the frame to fill
+     */
+    public void computeFrame(double epochMillis, Observer observer, Viewport viewport, SkyFrame frame) {
+        ObserverTransform transform = ObserverTransform.of(observer);
+        double siderealAngle = localSiderealTime(epochMillis, observer.getLongitude());
+        frame.setTime(epochMillis, siderealAngle, transform);
+        frame.setViewport(viewport);
+
+        //the index holds the catalog's directions, so it is searched around where the zenith is in those
+        double[] m = frame.getMatrix();
+        SkyIndex index = this.sky.getIndex();
+        int[] visibleCells = frame.getVisibleCells();
+        int cellCount;
+        if (viewport.getZoom() > 1) {
+            cellCount = findViewportCells(m, viewport, index, visibleCells);
+        } else {
+            //m[8] is a product of rotations, so it can come out a little past 1 at the poles, where asin is NaN
+            cellCount = index.findVisibleCells(Math.atan2(m[7], m[6]), Math.asin(Math.max(-1, Math.min(1, m[8]))),
+                    -Math.toRadians(Constants.CULLING_MARGIN_DEGREES), visibleCells);
+        }
+        int tier = viewport.getTier();
+        frame.ensureVisibleCapacity(index.countStars(visibleCells, cellCount, tier));
+        int visibleCount = index.copyStars(visibleCells, cellCount, tier, frame.getVisibleStars());
+        frame.setVisibleCount(visibleCount);
+        this.moveStars(frame, false, visibleCount);
+        this.moveStars(frame, true, this.sky.getAsterismStars().length);
+        frame.buildGrid();
+        frame.moveLabels(this.sky);
+    }
+
+    /**
+     * Helper method for computeFrame to find the cells of the sky index in a zoomed in view. Points along the edges of
+     * the view are turned back into directions (a point's distance from the zenith on the screen is its distance from
+     * the zenith in the sky, and its direction from the zenith is its azimuth), points below the horizon being moved
+     * up to it, and the cells within the farthest of them from the middle of the view are searched for. The index
+     * searches around any direction the same way it does around the zenith, with the "altitude" then measured from
+     * the circle that far from the middle of the view.
+     *
+     * @param m            rotation from equatorial into Alt-Az coordinates of the frame
+     * @param viewport     the part of the dome shown
+     * @param index        the sky index
+     * @param visibleCells array to write the cells into
+     * @return the number of cells written
+     */
+    private static int findViewportCells(double[] m, Viewport viewport, SkyIndex index, int[] visibleCells) {
+        double margin = Math.toRadians(Constants.CULLING_MARGIN_DEGREES);
+        double[] center = new double[3];
+        double[] point = new double[3];
+        double width = viewport.getWidth();
+        double height = viewport.getHeight();
+        unproject(m, viewport, width / 2, height / 2, margin, center);
+
+        double radius = 0;
+        int samples = Constants.VIEWPORT_CULLING_SAMPLES;
+        for (int i = 0; i <= samples; i++) {
+            double along = (double) i / samples;
+            double[][] edges = {{along * width, 0}, {along * width, height}, {0, along * height},
+                    {width, along * height}};
+            for (double[] edge : edges) {
+                unproject(m, viewport, edge[0], edge[1], margin, point);
+                double cos = center[0] * point[0] + center[1] * point[1] + center[2] * point[2];
+                radius = Math.max(radius, Math.acos(Math.max(-1, Math.min(1, cos))));
+            }
+        }
+        double declination = Math.asin(Math.max(-1, Math.min(1, center[2])));
+        return index.findVisibleCells(Math.atan2(center[1], center[0]), declination, Math.PI / 2 - radius - margin,
+                visibleCells);
+    }
+
+    /**
+     * Helper method to turn a point of a view back into the direction in the catalog's equatorial coordinates that
+     * is shown there. Points farther than margin below the horizon are moved up to that.
+     *
+     * @param m         rotation from equatorial into Alt-Az coordinates
+     * @param viewport  the part of the dome shown
+     * @param x         x position of the point in the view
+     * @param y         y position of the point in the view
+     * @param margin    how far below the horizon the point may be, in radians
+     * @param direction array to write the direction into, as a unit vector
+     */
+    private static void unproject(double[] m, Viewport viewport, double x, double y, double margin,
+                                  double[] direction) {
+        double dx = x - viewport.getZenithX();
+        double dy = y - viewport.getZenithY();
+        double distance = Math.hypot(dx, dy);
+        double zenithDistance = Math.min(distance / viewport.getScale(), Math.PI / 2 + margin);
+        double horizontal = distance > 0 ? Math.sin(zenithDistance) / distance : 0;
+        double east = dx * horizontal;
+        double north = dy * horizontal;
+        double up = Math.cos(zenithDistance);
+        //the matrix is a rotation, so its transpose turns Alt-Az coordinates back into equatorial ones
+        direction[0] = m[0] * east + m[3] * north + m[6] * up;
+        direction[1] = m[1] * east + m[4] * north + m[7] * up;
+        direction[2] = m[2] * east + m[5] * north + m[8] * up;
+    }
+
+    /**
+     * Computes the Altitude and Azimuth of every star in the catalog at each of the given times. Every position is
+     * kept, including those below the horizon, so this needs 8 bytes per star per time.
+     *
+     * @param observer where the sky is seen from
+     * @param times    the times, in milliseconds since 1970
+     * @return the positions
+     */
+    public Ephemeris computeEphemeris(Observer observer, double[] times) {
+        int[] stars = new int[this.sky.getCatalog().getStarCount()];
+        for (int i = 0; i < stars.length; i++) {
+            stars[i] = i;
+        }
+        return this.computeEphemeris(observer, times, stars);
+    }
+
+    /**
+     * Computes the Altitude and Azimuth of the given stars at each of the given times, split across the pool in
+     * blocks of times and stars.
+     *
+     * @param observer where the sky is seen from
+     * @param times    the times, in milliseconds since 1970
+     * @param stars    catalog indices of the stars
+     * @return the positions
+     */
+    public Ephemeris computeEphemeris(Observer observer, double[] times, int[] stars) {
+        Ephemeris ephemeris = new Ephemeris(observer, times, stars);
+        this.pool.invoke(new EphemerisTask(ephemeris, 0, times.length, 0, stars.length));
+        return ephemeris;
+    }
+
+    /**
+     * Helper method for computeFrame to move the given stars to their positions at the frame's time. Large numbers of
+     * stars are split across the pool, small ones are moved straight away on the calling thread.
+     *
+     * @param frame         the frame the positions are written into, with its time already set
+     * @param asterismStars whether to move the stars of the asterisms, rather than the visible stars
+     * @param count         number of stars to move
+     */
+    private void moveStars(SkyFrame frame, boolean asterismStars, int count) {
+        MoveTask task = new MoveTask(frame, asterismStars, 0, count);
+        if (count < Constants.PARALLEL_STARS) {
+            task.compute();
+        } else {
+            this.pool.invoke(task);
+        }
+    }
+
+    /**
+     * Moves a range of stars of a frame, splitting itself in half until the range is small enough.
+     */
+    @SuppressWarnings("serial")
+    private class MoveTask extends RecursiveAction {
+        private final SkyFrame frame;
+        private final boolean asterismStars;
+        private final int from;
+        private final int to;
+
+        private MoveTask(SkyFrame frame, boolean asterismStars, int from, int to) {
+            this.frame = frame;
+            this.asterismStars = asterismStars;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (this.to - this.from > Constants.PARALLEL_STARS) {
+                int middle = (this.from + this.to) >>> 1;
+                invokeAll(new MoveTask(this.frame, this.asterismStars, this.from, middle),
+                        new MoveTask(this.frame, this.asterismStars, middle, this.to));
+                return;
+            }
+
+            int[] starIndices = this.asterismStars ? EphemerisEngine.this.sky.getAsterismStars()
+                    : this.frame.getVisibleStars();
+            this.frame.moveStars(EphemerisEngine.this.sky.getStars(), this.asterismStars, starIndices, this.from,
+                    this.to);
+        }
+    }
+
+    /**
+     * Computes a block of times and stars of an ephemeris, splitting itself in half along the longer side until the
+     * block is small enough.
+     */
+    @SuppressWarnings("serial")
+    private class EphemerisTask extends RecursiveAction {
+        private final Ephemeris ephemeris;
+        private final int fromTime;
+        private final int toTime;
+        private final int fromStar;
+        private final int toStar;
+
+        private EphemerisTask(Ephemeris ephemeris, int fromTime, int toTime, int fromStar, int toStar) {
+            this.ephemeris = ephemeris;
+            this.fromTime = fromTime;
+            this.toTime = toTime;
+            this.fromStar = fromStar;
+            this.toStar = toStar;
+        }
+
+        @Override
+        protected void compute() {
+            int timeCount = this.toTime - this.fromTime;
+            int starCount = this.toStar - this.fromStar;
+            if ((long) timeCount * starCount > Constants.EPHEMERIS_BLOCK && (timeCount > 1 || starCount > 1)) {
+                if (timeCount >= starCount) {
+                    int middle = (this.fromTime + this.toTime) >>> 1;
+                    invokeAll(new EphemerisTask(this.ephemeris, this.fromTime, middle, this.fromStar, this.toStar),
+                            new EphemerisTask(this.ephemeris, middle, this.toTime, this.fromStar, this.toStar));
+                } else {
+                    int middle = (this.fromStar + this.toStar) >>> 1;
+                    invokeAll(new EphemerisTask(this.ephemeris, this.fromTime, this.toTime, this.fromStar, middle),
+                            new EphemerisTask(this.ephemeris, this.fromTime, this.toTime, middle, this.toStar));
+                }
+                return;
+            }
+
+            StarBuffer stars = EphemerisEngine.this.sky.getStars();
+            Observer observer = this.ephemeris.getObserver();
+            ObserverTransform transform = ObserverTransform.of(observer);
+            double[] precession = new double[9];
+            double[] m = new double[9];
+            for (int t = this.fromTime; t < this.toTime; t++) {
+                double time = this.ephemeris.getTime(t);
+                PrecessionNutation.fillMatrix(time, precession);
+                transform.fillMatrix(localSiderealTime(time, observer.getLongitude()), precession, m);
+                for (int s = this.fromStar; s < this.toStar; s++) {
+                    int i = this.ephemeris.getStar(s);
+                    double equatorialX = stars.getEquatorialX(i);
+                    double equatorialY = stars.getEquatorialY(i);
+                    double equatorialZ = stars.getEquatorialZ(i);
+                    double east = m[0] * equatorialX + m[1] * equatorialY + m[2] * equatorialZ;
+                    double north = m[3] * equatorialX + m[4] * equatorialY + m[5] * equatorialZ;
+                    double up = m[6] * equatorialX + m[7] * equatorialY + m[8] * equatorialZ;
+                    this.ephemeris.setPosition(t, s, Math.toDegrees(Math.asin(Math.max(-1, Math.min(1, up)))),
+                            Math.toDegrees(Math.atan2(east, north)));
+                }
+            }
+        }
+    }
+
+    public NightSky getSky() {
+        return this.sky;
+    }
+
+    public ForkJoinPool getPool() {
+        return this.pool;
+    }
+
+    /**
+     * The local sidereal time is the Right Ascension currently crossing the meridian, it increases by a full turn
+     * every sidereal day (a day minus the shift due to the orbit of the earth). The small terms in the square and cube
+     * of the time only add up over centuries. This is the mean sidereal time, nutation is left to PrecessionNutation.
+     *
+     * @param epochMillis the time, in milliseconds since 1970
+     * @param longitude   the observer's longitude, in degrees, positive to the east
+     * @return local sidereal time at the longitude, in radians between 0 and 2 pi
+     */
+    public static double localSiderealTime(double epochMillis, double longitude) {
+        double daysSinceJ2000 = (epochMillis - Constants.J2000_MILLIS) / Constants.DAY_LENGTH_MILLIS;
+        double centuries = daysSinceJ2000 / 36525.0;
+        double degrees = 280.46061837 + 360.98564736629 * daysSinceJ2000 + longitude
+                + (0.000387933 - centuries / 38710000.0) * centuries * centuries;
+        double radians = Math.toRadians(degrees % 360.0);
+        return radians < 0 ? radians + 2 * Math.PI : radians;
+    }
+
+    /**
+     * Helper method to determine the distance R from the zenith.
+     *
+     * @param altitude Altitude of the point
+     * @param viewport the part of the dome shown
+     * @return Radius to the zenith
+     */
+    public static double calculateR(double altitude, Viewport viewport) {
+        return Math.toRadians(90.0 - altitude) * viewport.getScale();
+    }
+
+    /**
+     * Helper method to transform a point's X value given R and Theta
+     *
+     * @param theta    Azimuth, in angles
+     * @param R        Radius from zenith
+     * @param viewport the part of the dome shown
+     * @return X value in rectangular coordinates
+     */
+    public static double transformX(double theta, double R, Viewport viewport) {
+        return R * Math.sin(theta * Math.PI / 180.0) + viewport.getZenithX();
+    }
+
+    /**
+     * Helper method to transform a point's Y value given R theta
+     *
+     * @param theta    Azimuth, in angles
+     * @param R        Radius from zenith
+     * @param viewport the part of the dome shown
+     * @return Y value in rectangular coordinates
+     */
+    public static double transformY(double theta, double R, Viewport viewport) {
+        return viewport.getZenithY() + R * Math.cos(theta * Math.PI / 180.0);
+    }
+}
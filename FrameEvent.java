@@ -0,0 +1,39 @@
+package cartoon;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * A frame of the JavaFX thread, as recorded by FrameMetrics, for Java Flight Recorder. Only recorded while a recording
+ * with the event enabled is running, for example when started with -XX:StartFlightRecording.
+ */
+@Name("cartoon.Frame")
+@Label("Frame")
+@Category("Planetarium")
+@Description("One frame of the JavaFX thread")
+@StackTrace(false)
+public class FrameEvent extends jdk.jfr.Event {
+    @Label("Frame Time")
+    @Description("Time since the previous frame")
+    @Timespan(Timespan.NANOSECONDS)
+    long frameNanos;
+
+    @Label("Update Time")
+    @Description("Time spent moving and drawing every view")
+    @Timespan(Timespan.NANOSECONDS)
+    long updateNanos;
+
+    @Label("Allocated")
+    @Description("Bytes allocated by the JavaFX thread while updating")
+    @DataAmount(DataAmount.BYTES)
+    long allocatedBytes;
+
+    @Label("Dropped Frames")
+    @Description("Frames missed since the previous frame")
+    long droppedFrames;
+}
@@ -0,0 +1,185 @@
+package cartoon;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps track of how fast the program runs: the time between frames (as a histogram, for the median and the 99th
+ * percentile), how long the JavaFX thread spends updating each frame and how much it allocates doing so, how many
+ * frames were dropped, and how long the simulators take to compute a frame of the sky and how much they allocate.
+ * <p>
+ * Numbers are gathered over a window of Constants.METRICS_WINDOW_NANOS, and then summed up and started over, so
+ * they always describe the last second or so rather than the whole run. Recording a frame only adds to a few
+ * counters, so it costs next to nothing whether or not anyone looks at the numbers. Every frame and every step of a
+ * simulator is also emitted as a JFR event (see FrameEvent and SimulationStepEvent), so long runs can be recorded
+ * with Java Flight Recorder and looked at afterwards.
+ * <p>
+ * Frames are recorded from the JavaFX thread only, while steps are recorded from the pool, from any number of
+ * simulators at once.
+ */
+public class FrameMetrics {
+    private final int[] frameHistogram; //frames by time since the previous frame, in buckets of METRICS_BUCKET_NANOS
+    private long windowStart;
+    private long lastFrameNanos;
+    private int frames;
+    private long updateNanos;
+    private long allocatedBytes;
+    private long droppedFrames;
+    private long totalDroppedFrames;
+
+    private final AtomicLong steps;
+    private final AtomicLong stepNanos;
+    private final AtomicLong maxStepNanos;
+    private final AtomicLong stepBytes;
+
+    //summary of the last finished window
+    private double frameP50Millis;
+    private double frameP99Millis;
+    private double framesPerSecond;
+    private double updateMillis;
+    private double bytesPerFrame;
+    private long windowDroppedFrames;
+    private double stepMillis;
+    private double maxStepMillis;
+    private double bytesPerStep;
+
+    public FrameMetrics() {
+        this.frameHistogram = new int[Constants.METRICS_HISTOGRAM_BUCKETS];
+        this.lastFrameNanos = -1;
+        this.steps = new AtomicLong();
+        this.stepNanos = new AtomicLong();
+        this.maxStepNanos = new AtomicLong();
+        this.stepBytes = new AtomicLong();
+    }
+
+    /**
+     * Records a frame of the JavaFX thread. A frame that comes much later than the one before means the frames in
+     * between were dropped.
+     *
+     * @param now            time of the frame, in nanoseconds, as given by the AnimationTimer
+     * @param updateNanos    time spent updating the frame, in nanoseconds
+     * @param allocatedBytes bytes allocated while updating the frame
+     * @return whether a window has just finished, so there is a new summary
+     */
+    public boolean recordFrame(long now, long updateNanos, long allocatedBytes) {
+        long frameNanos = 0;
+        long dropped = 0;
+        if (this.lastFrameNanos >= 0) {
+            frameNanos = now - this.lastFrameNanos;
+            int bucket = (int) Math.min(this.frameHistogram.length - 1, frameNanos / Constants.METRICS_BUCKET_NANOS);
+            this.frameHistogram[bucket]++;
+            this.frames++;
+            if (frameNanos > Constants.FRAME_NANOS * 3 / 2) {
+                dropped = Math.round((double) frameNanos / Constants.FRAME_NANOS) - 1;
+            }
+        } else {
+            this.windowStart = now;
+        }
+        this.lastFrameNanos = now;
+        this.updateNanos += updateNanos;
+        this.allocatedBytes += allocatedBytes;
+        this.droppedFrames += dropped;
+        this.totalDroppedFrames += dropped;
+
+        FrameEvent event = new FrameEvent();
+        if (event.shouldCommit()) {
+            event.frameNanos = frameNanos;
+            event.updateNanos = updateNanos;
+            event.allocatedBytes = allocatedBytes;
+            event.droppedFrames = dropped;
+            event.commit();
+        }
+
+        if (now - this.windowStart >= Constants.METRICS_WINDOW_NANOS && this.frames > 0) {
+            this.summarize(now);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Records a step of a simulator, that is one frame of the sky computed on the pool. Can be called from any
+     * thread.
+     *
+     * @param nanos          time taken, in nanoseconds
+     * @param allocatedBytes bytes allocated by the step
+     */
+    public void recordStep(long nanos, long allocatedBytes) {
+        this.steps.incrementAndGet();
+        this.stepNanos.addAndGet(nanos);
+        this.maxStepNanos.accumulateAndGet(nanos, Math::max);
+        this.stepBytes.addAndGet(allocatedBytes);
+    }
+
+    /**
+     * Helper method to sum up the window that has just finished and start the next one.
+     *
+     * @param now time of the last frame of the window, in nanoseconds
+     */
+    private void summarize(long now) {
+        this.frameP50Millis = this.percentile(0.5);
+        this.frameP99Millis = this.percentile(0.99);
+        this.framesPerSecond = this.frames * 1e9 / (now - this.windowStart);
+        this.updateMillis = this.updateNanos / 1e6 / this.frames;
+        this.bytesPerFrame = (double) this.allocatedBytes / this.frames;
+        this.windowDroppedFrames = this.droppedFrames;
+
+        long stepCount = this.steps.getAndSet(0);
+        long stepTotal = this.stepNanos.getAndSet(0);
+        long stepMax = this.maxStepNanos.getAndSet(0);
+        long bytes = this.stepBytes.getAndSet(0);
+        this.stepMillis = stepCount == 0 ? 0 : stepTotal / 1e6 / stepCount;
+        this.maxStepMillis = stepMax / 1e6;
+        this.bytesPerStep = stepCount == 0 ? 0 : (double) bytes / stepCount;
+
+        Arrays.fill(this.frameHistogram, 0);
+        this.frames = 0;
+        this.updateNanos = 0;
+        this.allocatedBytes = 0;
+        this.droppedFrames = 0;
+        this.windowStart = now;
+    }
+
+    /**
+     * Helper method to read a percentile of the time between frames off the histogram.
+     *
+     * @param fraction the percentile, as a fraction
+     * @return the time between frames, in milliseconds, to the upper edge of its bucket
+     */
+    private double percentile(double fraction) {
+        long rank = (long) Math.ceil(fraction * this.frames);
+        long seen = 0;
+        for (int bucket = 0; bucket < this.frameHistogram.length; bucket++) {
+            seen += this.frameHistogram[bucket];
+            if (seen >= rank) {
+                return (bucket + 1) * Constants.METRICS_BUCKET_NANOS / 1e6;
+            }
+        }
+        return this.frameHistogram.length * Constants.METRICS_BUCKET_NANOS / 1e6;
+    }
+
+    /**
+     * Describes the last finished window, one number per line, for the overlay.
+     *
+     * @param nodeCount number of nodes in the scene
+     * @return the description
+     */
+    public String describe(int nodeCount) {
+        return String.format("frame p50 %6.2f ms  p99 %6.2f ms  %5.1f fps%n"
+                        + "update    %6.2f ms  %10.0f B/frame%n"
+                        + "sky step  %6.2f ms  max %6.2f ms  %10.0f B/step%n"
+                        + "dropped   %6d (%d total)  nodes %d",
+                this.frameP50Millis, this.frameP99Millis, this.framesPerSecond, this.updateMillis, this.bytesPerFrame,
+                this.stepMillis, this.maxStepMillis, this.bytesPerStep, this.windowDroppedFrames,
+                this.totalDroppedFrames, nodeCount);
+    }
+
+    /**
+     * @return bytes allocated by the calling thread so far, as counted by the JVM
+     */
+    public static long allocatedBytes() {
+        return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean())
+                .getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+}
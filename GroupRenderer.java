@@ -0,0 +1,129 @@
+package cartoon;
+
+import javafx.scene.Group;
+import javafx.scene.Node;
+import javafx.scene.paint.Color;
+import javafx.scene.shape.Line;
+import javafx.scene.text.Text;
+import javafx.scene.transform.Rotate;
+
+/**
+ * Draws the sky with one node per element like the NodeRenderer, but the stars and lines are not moved every tick.
+ * This is an approximation of the sky, not an exact drawing of it like the other renderers, so it is only offered when
+ * Constants.GROUP_RENDERER is turned on.
+ * They are placed inside a Group, and the whole Group is turned by a single Rotate about the celestial pole above the
+ * horizon: the north pole in the northern hemisphere, and the south pole, about which the sky turns the other way on
+ * the screen, in the southern hemisphere.
+ * Most ticks then only change one angle instead of the positions (and bounds) of every node, and the rotation itself
+ * is applied when the scene is drawn.
+ * <p>
+ * Turning the flat picture of the dome about the pole is not how the stars really move (it is exact for the pole
+ * itself, and gets worse towards the horizon), and the stars drift further from their real positions the further the
+ * picture is turned, by about a pixel on average (and up to four pixels) per degree at Providence, and about three
+ * times as much near the equator, where the pole is on the horizon (SkyBenchmark prints these for every observing
+ * site). So once the sky has turned by more than Constants.GROUP_REBASE_RADIANS since the nodes were placed, they are
+ * placed again at their exact positions and the rotation starts again from zero, where the stars jump back by that
+ * much.
+ * <p>
+ * The names are kept outside of the rotated Group, so that they stay upright, and are moved to the label position
+ * of their asterism every tick.
+ */
+public class GroupRenderer implements SkyRenderer {
+    private final Asterism[] asterisms;
+    private final Group root;
+    private final Rotate rotation;
+    private final StarNodes stars;
+    private final Line[][] lines;
+    private final Text[] names;
+    private ObserverTransform placedTransform; //observer the nodes were last placed for, null before the first time
+    private Viewport placedViewport; //part of the dome the nodes were last placed in
+    private double baseSiderealAngle; //sidereal time at which the nodes were last placed
+
+    /**
+     * Creates the nodes for every asterism in the sky. Star nodes are created as stars come above the horizon.
+     *
+     * @param sky the sky that is drawn
+     */
+    public GroupRenderer(NightSky sky) {
+        Group rotatingGroup = new Group();
+        this.rotation = new Rotate();
+        rotatingGroup.getTransforms().add(this.rotation);
+
+        Asterism[] asterisms = sky.getAsterisms();
+        this.asterisms = asterisms;
+        this.lines = new Line[asterisms.length][];
+        for (int i = 0; i < asterisms.length; i++) {
+            this.lines[i] = new Line[asterisms[i].getEdges().length / 2];
+            for (int j = 0; j < this.lines[i].length; j++) {
+                this.lines[i][j] = new Line();
+                this.lines[i][j].setStroke(Color.BLUE);
+                rotatingGroup.getChildren().add(this.lines[i][j]);
+            }
+        }
+        this.stars = new StarNodes();
+        rotatingGroup.getChildren().add(this.stars.getGroup());
+
+        this.names = new Text[asterisms.length];
+        Group labelGroup = new Group();
+        for (int i = 0; i < asterisms.length; i++) {
+            this.names[i] = new Text(asterisms[i].getName());
+            this.names[i].setFill(Color.SKYBLUE);
+            this.names[i].setStyle("-fx-font-size: 10");
+            labelGroup.getChildren().add(this.names[i]);
+        }
+        this.root = new Group(rotatingGroup, labelGroup);
+    }
+
+    @Override
+    public Node getNode() {
+        return this.root;
+    }
+
+    /**
+     * Turns the stars and lines by however much the sky has turned since they were placed, placing them again first if
+     * that is too far (or they have not been placed for this observer or viewport yet). Then moves the names to their label
+     * positions.
+     *
+     * @param frame the frame to draw
+     */
+    @Override
+    public void render(SkyFrame frame) {
+        double turned = Math.IEEEremainder(frame.getSiderealAngle() - this.baseSiderealAngle, 2 * Math.PI);
+        ObserverTransform transform = frame.getTransform();
+        if (transform != this.placedTransform || frame.getViewport() != this.placedViewport
+                || Math.abs(turned) > Constants.GROUP_REBASE_RADIANS) {
+            this.placeNodes(frame);
+            turned = 0;
+        }
+        this.rotation.setAngle(transform.getTurnAngle(turned));
+
+        for (int i = 0; i < this.names.length; i++) {
+            this.names[i].setX(frame.getLabelX(i));
+            this.names[i].setY(frame.getLabelY(i));
+        }
+    }
+
+    /**
+     * Helper method to move every star above the horizon and every line to their positions in the frame, and the
+     * centre of the rotation to the frame's celestial pole above the horizon.
+     *
+     * @param frame the frame whose positions are copied
+     */
+    private void placeNodes(SkyFrame frame) {
+        this.stars.show(frame);
+        for (int i = 0; i < this.asterisms.length; i++) {
+            int[] edgeSlots = this.asterisms[i].getEdgeSlots();
+            for (int j = 0; j < this.lines[i].length; j++) {
+                this.lines[i][j].setStartX(frame.getAsterismStarX(edgeSlots[2 * j]));
+                this.lines[i][j].setStartY(frame.getAsterismStarY(edgeSlots[2 * j]));
+                this.lines[i][j].setEndX(frame.getAsterismStarX(edgeSlots[2 * j + 1]));
+                this.lines[i][j].setEndY(frame.getAsterismStarY(edgeSlots[2 * j + 1]));
+            }
+        }
+        this.baseSiderealAngle = frame.getSiderealAngle();
+        this.placedTransform = frame.getTransform();
+        this.placedViewport = frame.getViewport();
+        this.rotation.setPivotX(this.placedViewport.getZenithX());
+        this.rotation.setPivotY(this.placedViewport.getPoleY(this.placedTransform));
+    }
+}
@@ -0,0 +1,212 @@
+package cartoon;
+
+import java.util.Arrays;
+
+/**
+ * Keeps the names of the asterisms from being drawn on top of each other. Each name starts out centered on the
+ * center of its asterism, and names that overlap are then pushed apart, half the overlap each, along whichever
+ * direction they overlap least in. Pushing one pair apart can push a name into another, so this is repeated a few
+ * times (Constants.LABEL_LAYOUT_PASSES), or until nothing overlaps.
+ * <p>
+ * Comparing every name with every other would take time growing with the square of the number of names, so the names
+ * are sorted into a grid first (a spatial hash), with cells as wide as the widest name and as tall as a name. Two
+ * names can then only overlap if they are in the same or neighbouring cells, and every pass takes time in proportion
+ * to the number of names. The grid is rebuilt at the start of every pass with a counting sort into flat arrays, so
+ * no objects are created, other than a larger grid the first time the view is made larger than it has been.
+ * <p>
+ * The size of a name is estimated from its number of characters rather than measured, since the layout runs on the
+ * compute pool, away from JavaFX. Names whose asterism is below the horizon are hidden by the ground, so they are
+ * neither moved nor in the way of others.
+ */
+public class LabelLayout {
+    private final double[] widths;
+    private final double height;
+    private final double cellWidth;
+    private final double cellHeight;
+    private int columns;
+    private int rows;
+    private final int[] labelCell; //cell of each name, or -1 if it is below the horizon
+    private int[] cellStart; //names of cell c are cellLabels[cellStart[c]] to cellLabels[cellStart[c + 1] - 1]
+    private final int[] cellLabels;
+
+    /**
+     * @param names the names to lay out
+     */
+    public LabelLayout(String[] names) {
+        this.widths = new double[names.length];
+        double widest = 1;
+        for (int i = 0; i < names.length; i++) {
+            this.widths[i] = names[i].length() * Constants.LABEL_CHARACTER_WIDTH;
+            widest = Math.max(widest, this.widths[i]);
+        }
+        this.height = Constants.LABEL_HEIGHT;
+        this.cellWidth = widest + Constants.LABEL_GAP;
+        this.cellHeight = this.height + Constants.LABEL_GAP;
+        this.labelCell = new int[names.length];
+        this.cellStart = new int[1];
+        this.cellLabels = new int[names.length];
+    }
+
+    /**
+     * Helper method to cover a view of the given size with the grid, making the grid larger if it has never been
+     * that large.
+     *
+     * @param width  width of the view
+     * @param height height of the view
+     */
+    private void fitGrid(double width, double height) {
+        this.columns = Math.max(1, (int) Math.ceil(width / this.cellWidth));
+        this.rows = Math.max(1, (int) Math.ceil(height / this.cellHeight));
+        if (this.columns * this.rows + 1 > this.cellStart.length) {
+            this.cellStart = new int[this.columns * this.rows + 1];
+        }
+    }
+
+    /**
+     * Moves the names from the centers of their asterisms to where they no longer overlap. Positions are where the
+     * text starts, on its baseline, as JavaFX draws text.
+     *
+     * @param x        the x position of the center of every asterism, replaced by the x position of its name
+     * @param y        the y position of the center of every asterism, replaced by the y position of its name
+     * @param viewport the part of the dome the positions are in
+     */
+    public void layout(double[] x, double[] y, Viewport viewport) {
+        this.fitGrid(viewport.getWidth(), viewport.getHeight());
+        double horizon = viewport.getHorizonRadius();
+        for (int i = 0; i < x.length; i++) {
+            boolean visible = Math.hypot(x[i] - viewport.getZenithX(), y[i] - viewport.getZenithY()) <= horizon;
+            x[i] -= this.widths[i] / 2;
+            y[i] += this.height / 2;
+            this.labelCell[i] = visible ? 0 : -1;
+        }
+
+        for (int pass = 0; pass < Constants.LABEL_LAYOUT_PASSES; pass++) {
+            this.buildGrid(x, y);
+            boolean moved = false;
+            for (int i = 0; i < x.length; i++) {
+                if (this.labelCell[i] < 0) {
+                    continue;
+                }
+                int column = this.labelCell[i] % this.columns;
+                int row = this.labelCell[i] / this.columns;
+                for (int r = Math.max(0, row - 1); r <= Math.min(this.rows - 1, row + 1); r++) {
+                    for (int c = Math.max(0, column - 1); c <= Math.min(this.columns - 1, column + 1); c++) {
+                        int cell = r * this.columns + c;
+                        for (int k = this.cellStart[cell]; k < this.cellStart[cell + 1]; k++) {
+                            //each pair is only pushed apart once, by the name that comes first
+                            if (this.cellLabels[k] > i) {
+                                moved |= this.pushApart(i, this.cellLabels[k], x, y);
+                            }
+                        }
+                    }
+                }
+            }
+            if (!moved) {
+                break;
+            }
+        }
+    }
+
+    /**
+     * Moves the names of the last layout from one viewport to another, keeping each name centered on the same point
+     * of the sky, without laying them out again. Names that did not overlap still do not, unless the view got
+     * smaller.
+     *
+     * @param x    the x position of every name, as laid out, replaced by its position in the new viewport
+     * @param y    the y position of every name, as laid out, replaced by its position in the new viewport
+     * @param from the viewport the names were laid out in
+     * @param to   the new viewport
+     */
+    public void reproject(double[] x, double[] y, Viewport from, Viewport to) {
+        double ratio = to.getScale() / from.getScale();
+        for (int i = 0; i < x.length; i++) {
+            double centerX = x[i] + this.widths[i] / 2;
+            double centerY = y[i] - this.height / 2;
+            x[i] = to.getZenithX() + (centerX - from.getZenithX()) * ratio - this.widths[i] / 2;
+            y[i] = to.getZenithY() + (centerY - from.getZenithY()) * ratio + this.height / 2;
+        }
+    }
+
+    /**
+     * Finds the name drawn at a point, among the names of the last layout. Names below the horizon are not drawn on
+     * top of the ground, so they are never found.
+     *
+     * @param x      the x position of every name, as laid out
+     * @param y      the y position of every name, as laid out
+     * @param pointX x position of the point
+     * @param pointY y position of the point
+     * @return index of the name, or -1 if no name is there
+     */
+    public int find(double[] x, double[] y, double pointX, double pointY) {
+        for (int i = 0; i < x.length; i++) {
+            if (this.labelCell[i] >= 0 && pointX >= x[i] && pointX <= x[i] + this.widths[i]
+                    && pointY >= y[i] - this.height && pointY <= y[i]) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Helper method to sort every name above the horizon into the cell its top left corner is in. Names outside of
+     * the pane go into the nearest cell on its edge, which keeps names that are close together in the same or
+     * neighbouring cells.
+     *
+     * @param x the x position of every name
+     * @param y the y position of every name
+     */
+    private void buildGrid(double[] x, double[] y) {
+        Arrays.fill(this.cellStart, 0);
+        for (int i = 0; i < x.length; i++) {
+            if (this.labelCell[i] < 0) {
+                continue;
+            }
+            int column = (int) Math.min(this.columns - 1, Math.max(0, Math.floor(x[i] / this.cellWidth)));
+            int row = (int) Math.min(this.rows - 1, Math.max(0, Math.floor((y[i] - this.height) / this.cellHeight)));
+            this.labelCell[i] = row * this.columns + column;
+            this.cellStart[this.labelCell[i] + 1]++;
+        }
+        for (int cell = 0; cell < this.columns * this.rows; cell++) {
+            this.cellStart[cell + 1] += this.cellStart[cell];
+        }
+        //cellStart[c] counts up while the cell is filled, and ends up where cell c + 1 starts, so it is moved back
+        for (int i = 0; i < x.length; i++) {
+            if (this.labelCell[i] >= 0) {
+                this.cellLabels[this.cellStart[this.labelCell[i]]++] = i;
+            }
+        }
+        for (int cell = this.columns * this.rows; cell > 0; cell--) {
+            this.cellStart[cell] = this.cellStart[cell - 1];
+        }
+        this.cellStart[0] = 0;
+    }
+
+    /**
+     * Helper method to push two names apart if they overlap (with a gap of Constants.LABEL_GAP between them), each
+     * by half of the overlap, along whichever direction they overlap least in.
+     *
+     * @param i first name
+     * @param j second name
+     * @param x the x position of every name
+     * @param y the y position of every name
+     * @return whether the names overlapped
+     */
+    private boolean pushApart(int i, int j, double[] x, double[] y) {
+        double overlapX = Math.min(x[i] + this.widths[i], x[j] + this.widths[j]) - Math.max(x[i], x[j])
+                + Constants.LABEL_GAP;
+        double overlapY = this.height - Math.abs(y[i] - y[j]) + Constants.LABEL_GAP;
+        if (overlapX <= 0 || overlapY <= 0) {
+            return false;
+        }
+        if (overlapX < overlapY) {
+            double direction = x[i] + this.widths[i] / 2 <= x[j] + this.widths[j] / 2 ? -1 : 1;
+            x[i] += direction * overlapX / 2;
+            x[j] -= direction * overlapX / 2;
+        } else {
+            double direction = y[i] <= y[j] ? -1 : 1;
+            y[i] += direction * overlapY / 2;
+            y[j] -= direction * overlapY / 2;
+        }
+        return true;
+    }
+}
@@ -1,85 +1,152 @@
 package cartoon;
 
-import javafx.geometry.Point2D;
-import javafx.scene.shape.Ellipse;
-import javafx.scene.shape.Line;
-import javafx.scene.transform.Rotate;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.stream.IntStream;
 
 /**
- * The top-level composite shape class. Models the entire night sky as an array of asterisms.
+ * The top-level composite shape class. Models the entire night sky as every star of the catalog, and an array of
+ * asterisms connecting some of those stars. Nothing in here changes once it is built: the sky at a given time is
+ * computed from it by the EphemerisEngine, on any number of threads at once.
  */
 public class NightSky {
 
+    private final StarCatalog catalog;
     private final Asterism[] asterisms; //the night sky contains all of the asterisms
 
     /**
-     * Constructs the night sky, adds all appropriate asterisms.
+     * Direction of every star in equatorial coordinates, which never changes, the position at any time is computed
+     * from it. Kept off the heap so large catalogs cost the garbage collector nothing.
+     */
+    private final StarBuffer stars;
+
+    /**
+     * Only the stars in the parts of the sky above the horizon are moved and drawn. The index finds them, and the
+     * stars of every asterism are always moved as well, so that lines dipping below the horizon still end in the
+     * right place.
+     */
+    private final SkyIndex index;
+    private final int[] asterismStars;
+
+    /**
+     * Average direction of the stars of every asterism, as a unit vector in equatorial coordinates. The whole sky
+     * turns together, so the center of an asterism is simply turned along with its stars, which is where its name
+     * goes.
+     */
+    private final double[] centerX;
+    private final double[] centerY;
+    private final double[] centerZ;
+
+    /**
+     * The picture every star is drawn with, picked by its magnitude, shared by every view.
+     */
+    private final StarSprites sprites;
+
+    /**
+     * Constructs the night sky from the star catalog (importing it first if the text files have changed), and adds
+     * all of the asterisms defined in it.
      */
     public NightSky() {
-        this.asterisms = new Asterism[Constants.NUM_ASTERISMS];
-
-        this.asterisms[0] = new Asterism(Constants.UMISTARS, Constants.UMILINES, "Little Dipper");
-        this.asterisms[1] = new Asterism(Constants.UMASTARS, Constants.UMALINES, "Big Dipper");
-        this.asterisms[2] = new Asterism(Constants.SUMMERTRIANGLESTARS, Constants.SUMMERTRIANGLELINES, "Summer Triangle");
-        this.asterisms[3] = new Asterism(Constants.CASSTARS, Constants.CASLINES, "Cassiopeia's W");
-        this.asterisms[4] = new Asterism(Constants.SPRINGTRIANGLESTARS, Constants.SPRINGTRIANGLELINES, "Spring Triangle");
-        this.asterisms[5] = new Asterism(Constants.GREATSQUARESTARS, Constants.GREATSQUARELINES, "Great Square of Pegasus");
-        this.asterisms[6] = new Asterism(Constants.WINTERHEXAGONSTARS, Constants.WINTERHEXAGONLINES, "Winter Hexagon");
-        this.asterisms[7] = new Asterism(Constants.ORIONSTARS, Constants.ORIONLINES, "Orion's Belt and Shield");
+        this(openCatalog());
     }
 
-
     /**
-     * For each asterism, each star will be rotated about the North Celestial Pole by the degrees specified. For this,
-     * we use the Geometric Rotation Formula, to change the actual positions of each of the stars (since the label's
-     * position is dependent on the stars positions).
-     * <p>
-     * For the lines, we simply perform the same rotation on its independant starting and ending points.
+     * Constructs the night sky from the given catalog, and adds all of the asterisms defined in it.
      *
-     * @param rotationRadians radians by which the object is rotated, clockwise (initially set to a negative value in
-     *                       constants due to Earth rotating on its axis counterclockwise).
+     * @param catalog the stars and asterisms of the sky
      */
-    public void rotate(double rotationRadians) {
+    public NightSky(StarCatalog catalog) {
+        this.catalog = catalog;
+        this.stars = new StarBuffer(this.catalog);
+        this.index = new SkyIndex(this.catalog);
 
-        for (Asterism asterism : this.asterisms) {
-            for (Ellipse star : asterism.getStars()) {
-                Point2D rotatedPoint = rotatePoint(star.getCenterX(), star.getCenterY(), rotationRadians);
-                star.setCenterX(rotatedPoint.getX());
-                star.setCenterY(rotatedPoint.getY());
-            }
-            for (Line line : asterism.getLines()) {
-                Point2D rotatedStart = rotatePoint(line.getStartX(),line.getStartY(),rotationRadians);
-                Point2D rotatedEnd = rotatePoint(line.getEndX(),line.getEndY(),rotationRadians);
-                line.setStartX(rotatedStart.getX());
-                line.setStartY(rotatedStart.getY());
-                line.setEndX(rotatedEnd.getX());
-                line.setEndY(rotatedEnd.getY());
+        this.asterismStars = IntStream.range(0, this.catalog.getAsterismCount())
+                .flatMap(i -> Arrays.stream(this.catalog.getAsterismEdges(i))).distinct().sorted().toArray();
+        this.asterisms = new Asterism[this.catalog.getAsterismCount()];
+        for (int i = 0; i < this.asterisms.length; i++) {
+            this.asterisms[i] = new Asterism(this.catalog.getAsterismEdges(i), this.catalog.getAsterismName(i),
+                    this.asterismStars);
+        }
+
+        this.centerX = new double[this.asterisms.length];
+        this.centerY = new double[this.asterisms.length];
+        this.centerZ = new double[this.asterisms.length];
+        for (int i = 0; i < this.asterisms.length; i++) {
+            for (int star : this.asterisms[i].getStars()) {
+                this.centerX[i] += this.stars.getEquatorialX(star);
+                this.centerY[i] += this.stars.getEquatorialY(star);
+                this.centerZ[i] += this.stars.getEquatorialZ(star);
             }
-            asterism.setLabelPos();
+            double length = Math.sqrt(this.centerX[i] * this.centerX[i] + this.centerY[i] * this.centerY[i]
+                    + this.centerZ[i] * this.centerZ[i]);
+            this.centerX[i] /= length;
+            this.centerY[i] /= length;
+            this.centerZ[i] /= length;
         }
+
+        this.sprites = new StarSprites(this.stars);
     }
 
+
     /**
-     * Helper Method for rotate to rotate a specific point around a specific point of rotation by the specified degrees.
+     * Helper method to open the catalog named in Constants, importing it from its text files first if they have
+     * changed since it was written.
      *
-     * @param initialX The original X value of the point to be rotated
-     * @param initialY The original Y value of the point to be rotated
-     * @param rotationRadians The amount of radians the point is to be rotated.
-     * @return
+     * @return the catalog
      */
-    private Point2D rotatePoint(double initialX, double initialY, double rotationRadians) {
-        double tempX = initialX - Constants.NCP_X;
-        double tempY = initialY - Constants.NCP_Y;
-        return new Point2D(tempX * Math.cos(rotationRadians) - tempY * Math.sin(rotationRadians) + Constants.NCP_X,
-                tempX * Math.sin(rotationRadians) + tempY * Math.cos(rotationRadians) + Constants.NCP_Y);
+    private static StarCatalog openCatalog() {
+        CatalogImporter.importIfStale(Path.of(Constants.STAR_FILE), Path.of(Constants.ASTERISM_FILE),
+                Path.of(Constants.CATALOG_FILE));
+        return new StarCatalog(Path.of(Constants.CATALOG_FILE));
     }
 
     /**
-     * Getter for the array of Asterisms.
-     *
-     * @return
+     * Getters
+     */
+
+    public StarCatalog getCatalog() {
+        return this.catalog;
+    }
+
+    public StarBuffer getStars() {
+        return this.stars;
+    }
+
+    public SkyIndex getIndex() {
+        return this.index;
+    }
+
+    /**
+     * @return catalog indices of every star that is part of an asterism, sorted, each listed once
      */
+    public int[] getAsterismStars() {
+        return this.asterismStars;
+    }
+
     public Asterism[] getAsterisms() {
         return this.asterisms;
     }
+
+    public double[] getCenterX() {
+        return this.centerX;
+    }
+
+    public double[] getCenterY() {
+        return this.centerY;
+    }
+
+    public double[] getCenterZ() {
+        return this.centerZ;
+    }
+
+    public StarSprites getSprites() {
+        return this.sprites;
+    }
+
+    /**
+     * @return the name of every asterism
+     */
+    public String[] getNames() {
+        return Arrays.stream(this.asterisms).map(Asterism::getName).toArray(String[]::new);
+    }
 }
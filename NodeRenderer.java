@@ -0,0 +1,79 @@
+package cartoon;
+
+import javafx.scene.Group;
+import javafx.scene.Node;
+import javafx.scene.paint.Color;
+import javafx.scene.shape.Line;
+import javafx.scene.text.Text;
+
+/**
+ * Draws the sky with one node per element: an Ellipse for every star above the horizon, a Line for every line and a
+ * Text for every name. This is the simplest way to draw the sky, but every node has its own cost for CSS, layout and
+ * picking, so it does not scale to large numbers of stars (see CanvasRenderer).
+ */
+public class NodeRenderer implements SkyRenderer {
+    private final Asterism[] asterisms;
+    private final Group group;
+    private final StarNodes stars;
+    private final Line[][] lines;
+    private final Text[] names;
+
+    /**
+     * Creates the nodes for every asterism in the sky. Lines are added before stars so that the stars are drawn on
+     * top of them, and the names last.
+     *
+     * @param sky the sky that is drawn
+     */
+    public NodeRenderer(NightSky sky) {
+        Asterism[] asterisms = sky.getAsterisms();
+        this.asterisms = asterisms;
+        this.lines = new Line[asterisms.length][];
+        this.names = new Text[asterisms.length];
+
+        Group lineGroup = new Group();
+        for (int i = 0; i < asterisms.length; i++) {
+            this.lines[i] = new Line[asterisms[i].getEdges().length / 2];
+            for (int j = 0; j < this.lines[i].length; j++) {
+                this.lines[i][j] = new Line();
+                this.lines[i][j].setStroke(Color.BLUE);
+                lineGroup.getChildren().add(this.lines[i][j]);
+            }
+        }
+        this.stars = new StarNodes();
+        Group nameGroup = new Group();
+        for (int i = 0; i < asterisms.length; i++) {
+            this.names[i] = new Text(asterisms[i].getName());
+            this.names[i].setFill(Color.SKYBLUE);
+            this.names[i].setStyle("-fx-font-size: 10");
+            nameGroup.getChildren().add(this.names[i]);
+        }
+        this.group = new Group(lineGroup, this.stars.getGroup(), nameGroup);
+    }
+
+    @Override
+    public Node getNode() {
+        return this.group;
+    }
+
+    /**
+     * Copies the positions of every star above the horizon, line end and label in the frame into their nodes.
+     *
+     * @param frame the frame to draw
+     */
+    @Override
+    public void render(SkyFrame frame) {
+        this.stars.show(frame);
+
+        for (int i = 0; i < this.asterisms.length; i++) {
+            int[] edgeSlots = this.asterisms[i].getEdgeSlots();
+            for (int j = 0; j < this.lines[i].length; j++) {
+                this.lines[i][j].setStartX(frame.getAsterismStarX(edgeSlots[2 * j]));
+                this.lines[i][j].setStartY(frame.getAsterismStarY(edgeSlots[2 * j]));
+                this.lines[i][j].setEndX(frame.getAsterismStarX(edgeSlots[2 * j + 1]));
+                this.lines[i][j].setEndY(frame.getAsterismStarY(edgeSlots[2 * j + 1]));
+            }
+            this.names[i].setX(frame.getLabelX(i));
+            this.names[i].setY(frame.getLabelY(i));
+        }
+    }
+}
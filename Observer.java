@@ -0,0 +1,67 @@
+package cartoon;
+
+/**
+ * Where on Earth the sky is seen from. The latitude decides how high the North Celestial Pole stands and which stars
+ * never set, and the longitude shifts the local sidereal time, so the same stars cross the meridian at a different
+ * clock time.
+ */
+public class Observer {
+    private final double latitude; //degrees, positive to the north
+    private final double longitude; //degrees, positive to the east
+    private final double sinLatitude;
+    private final double cosLatitude;
+
+    /**
+     * @param latitude  latitude in degrees, between -90 and 90
+     * @param longitude longitude in degrees, positive to the east, between -180 and 180
+     */
+    public Observer(double latitude, double longitude) {
+        if (!(latitude >= -90 && latitude <= 90) || !(longitude >= -180 && longitude <= 180)) {
+            throw new IllegalArgumentException("No such place on Earth: " + latitude + ", " + longitude);
+        }
+        this.latitude = latitude;
+        this.longitude = longitude;
+        this.sinLatitude = Math.sin(Math.toRadians(latitude));
+        this.cosLatitude = Math.cos(Math.toRadians(latitude));
+    }
+
+    /**
+     * Getters
+     */
+
+    public double getLatitude() {
+        return this.latitude;
+    }
+
+    public double getLongitude() {
+        return this.longitude;
+    }
+
+    public double getSinLatitude() {
+        return this.sinLatitude;
+    }
+
+    public double getCosLatitude() {
+        return this.cosLatitude;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (!(o instanceof Observer)) {
+            return false;
+        }
+        Observer other = (Observer) o;
+        return Double.compare(this.latitude, other.latitude) == 0
+                && Double.compare(this.longitude, other.longitude) == 0;
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * Double.hashCode(this.latitude) + Double.hashCode(this.longitude);
+    }
+
+    @Override
+    public String toString() {
+        return this.latitude + ", " + this.longitude;
+    }
+}
@@ -0,0 +1,114 @@
+package cartoon;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Everything about turning equatorial coordinates into screen positions that depends only on where the observer is:
+ * the rotation from hour angle and Declination into Alt-Az for the observer's latitude. Where anything ends up on the
+ * screen depends on the size of the view as well, so that is left to the Viewport. These are worked out once per
+ * observer and kept in a small cache, so switching between
+ * observing sites costs nothing once each has been seen, and the catalog itself never has to be touched.
+ * <p>
+ * The rotation for a given time is this matrix multiplied by the turn of the sky at that time's sidereal angle and
+ * by the precession of the Earth's axis since J2000, which fillMatrix does once per frame. Every star then takes
+ * three dot products with its fixed direction.
+ */
+public class ObserverTransform {
+    //least recently used observers are dropped once there are more than Constants.OBSERVER_CACHE_SIZE
+    private static final Map<Observer, ObserverTransform> CACHE = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Observer, ObserverTransform> eldest) {
+            return this.size() > Constants.OBSERVER_CACHE_SIZE;
+        }
+    };
+
+    private final Observer observer;
+    private final double latitudeRadians;
+
+    /**
+     * Rotation from (cos of the hour angle, sin of the hour angle, sin of the Declination), each of the first two
+     * multiplied by cos of the Declination, into (east, north, up). Row after row.
+     */
+    private final double[] horizon;
+
+    /**
+     * @param observer where the sky is seen from
+     */
+    private ObserverTransform(Observer observer) {
+        this.observer = observer;
+        this.latitudeRadians = Math.toRadians(observer.getLatitude());
+        double sinLatitude = observer.getSinLatitude();
+        double cosLatitude = observer.getCosLatitude();
+        this.horizon = new double[]{
+                0, -1, 0,
+                -sinLatitude, 0, cosLatitude,
+                cosLatitude, 0, sinLatitude};
+    }
+
+    /**
+     * Returns the transform of an observer, working it out only if it is not in the cache.
+     *
+     * @param observer where the sky is seen from
+     * @return the transform
+     */
+    public static synchronized ObserverTransform of(Observer observer) {
+        return CACHE.computeIfAbsent(observer, ObserverTransform::new);
+    }
+
+    /**
+     * Fills in the rotation from the catalog's equatorial directions into Alt-Az coordinates at the given sidereal
+     * angle, row after row: a star with catalog direction (x, y, z) is at east = m[0]x + m[1]y + m[2]z,
+     * north = m[3]x + m[4]y + m[5]z and up = m[6]x + m[7]y + m[8]z. The last row is then the direction of the zenith
+     * in the catalog's coordinates.
+     *
+     * @param siderealAngle local sidereal time, in radians
+     * @param precession    rotation from the catalog's directions into those of the same time (see
+     *                      PrecessionNutation), row after row
+     * @param matrix        the nine values to fill
+     */
+    public void fillMatrix(double siderealAngle, double[] precession, double[] matrix) {
+        double cosSidereal = Math.cos(siderealAngle);
+        double sinSidereal = Math.sin(siderealAngle);
+        for (int row = 0; row < 9; row += 3) {
+            //the hour angle is the sidereal angle minus the Right Ascension, which turns (x, y) into
+            //(cos * x + sin * y, sin * x - cos * y)
+            double a = this.horizon[row] * cosSidereal + this.horizon[row + 1] * sinSidereal;
+            double b = this.horizon[row] * sinSidereal - this.horizon[row + 1] * cosSidereal;
+            double c = this.horizon[row + 2];
+            for (int column = 0; column < 3; column++) {
+                matrix[row + column] = a * precession[column] + b * precession[3 + column] + c * precession[6 + column];
+            }
+        }
+    }
+
+    /**
+     * Getters
+     */
+
+    public Observer getObserver() {
+        return this.observer;
+    }
+
+    public double getLatitudeRadians() {
+        return this.latitudeRadians;
+    }
+
+    /**
+     * @return 1 if the north celestial pole is the one above the horizon, -1 if it is the south celestial pole
+     */
+    public int getVisiblePole() {
+        return this.latitudeRadians >= 0 ? 1 : -1;
+    }
+
+    /**
+     * The flat picture of the dome turns counterclockwise on the screen about the north pole as the sidereal time
+     * increases, and clockwise about the south pole (see Viewport.getPoleY for where the pole is).
+     *
+     * @param turned how far the sidereal time has moved on, in radians
+     * @return the angle to turn the picture by about the pole above the horizon, in degrees, clockwise on the screen
+     */
+    public double getTurnAngle(double turned) {
+        return -this.getVisiblePole() * Math.toDegrees(turned);
+    }
+}
@@ -13,8 +13,10 @@ public class PaneOrganizer {
 
     /**
      * Creates the overall borderpane, and adds the shape pane and control pane to its center and bottom.
+     *
+     * @param viewCount number of views of the sky to show side by side
      */
-    public PaneOrganizer() {
+    public PaneOrganizer(int viewCount) {
         this.root = new BorderPane();
 
         Pane shapePane = new Pane();
@@ -27,7 +29,7 @@ public class PaneOrganizer {
         this.root.setCenter(shapePane);
         this.root.setBottom(controlPane);
 
-        new Cartoon(shapePane, controlPane);
+        new Cartoon(shapePane, controlPane, viewCount);
     }
 
     public BorderPane getRoot() {
@@ -0,0 +1,200 @@
+package cartoon;
+
+/**
+ * The slow wobble of the Earth's axis. The catalog gives every star's direction at J2000 (noon on January 1, 2000),
+ * but the axis the sky turns around moves: precession swings the pole around a circle of about 23.4 degrees once
+ * every 26,000 years (about a degree every 72 years), and nutation nods it back and forth by up to 17 arcseconds,
+ * mainly every 18.6 years. Over decades this moves the stars visibly away from where they would be if the catalog
+ * directions were used as they are.
+ * <p>
+ * Precession follows the IAU 2006 model, through the four Fukushima-Williams angles (which also include the small
+ * offset between the catalog's frame and the J2000 equator). Nutation is the largest terms of the IAU 2000B series,
+ * good to a few thousandths of an arcsecond, which is far less than a pixel. The polynomials of IAU 2006 are meant
+ * for a few thousand years either side of 2000, beyond that the sky is still drawn, only less exactly.
+ * <p>
+ * Neither series is evaluated for every frame: each is stood in for by a ChebyshevTable, so a frame only costs six
+ * short polynomials and the trig of five rotations, however quickly time is moving.
+ */
+public class PrecessionNutation {
+    private static final double ARCSECONDS_TO_RADIANS = Math.PI / (180.0 * 3600.0);
+    private static final double TURN_ARCSECONDS = 1296000.0;
+    private static final double DAYS_PER_CENTURY = 36525.0;
+
+    /**
+     * Multiples of the fundamental arguments (the mean anomalies of the moon and sun, the moon's argument of latitude,
+     * the elongation of the moon from the sun and the longitude of the moon's ascending node) making up the argument
+     * of each nutation term, largest term first.
+     */
+    private static final int[][] NUTATION_MULTIPLES = {
+            {0, 0, 0, 0, 1}, {0, 0, 2, -2, 2}, {0, 0, 2, 0, 2}, {0, 0, 0, 0, 2}, {0, 1, 0, 0, 0},
+            {0, 1, 2, -2, 2}, {1, 0, 0, 0, 0}, {0, 0, 2, 0, 1}, {1, 0, 2, 0, 2}, {0, -1, 2, -2, 2},
+            {0, 0, 2, -2, 1}, {-1, 0, 2, 0, 2}, {-1, 0, 0, 2, 0}, {1, 0, 0, 0, 1}, {-1, 0, 0, 0, 1},
+            {-1, 0, 2, 2, 2}, {1, 0, 2, 0, 1}, {-2, 0, 2, 0, 1}, {0, 0, 0, 2, 0}, {0, 0, 2, 2, 2}};
+
+    /**
+     * Amplitudes of each nutation term, in units of 0.1 microarcseconds: the sine and (per century) change of the sine
+     * and cosine amplitude in longitude, then the cosine and (per century) change of the cosine and sine amplitude in
+     * obliquity.
+     */
+    private static final double[][] NUTATION_AMPLITUDES = {
+            {-172064161.0, -174666.0, 33386.0, 92052331.0, 9086.0, 15377.0},
+            {-13170906.0, -1675.0, -13696.0, 5730336.0, -3015.0, -4587.0},
+            {-2276413.0, -234.0, 2796.0, 978459.0, -485.0, 1374.0},
+            {2074554.0, 207.0, -698.0, -897492.0, 470.0, -291.0},
+            {1475877.0, -3633.0, 11817.0, 73871.0, -184.0, -1924.0},
+            {-516821.0, 1226.0, -524.0, 224386.0, -677.0, -174.0},
+            {711159.0, 73.0, -872.0, -6750.0, 0.0, 358.0},
+            {-387298.0, -367.0, 380.0, 200728.0, 18.0, 318.0},
+            {-301461.0, -36.0, 816.0, 129025.0, -63.0, 367.0},
+            {215829.0, -494.0, 111.0, -95929.0, 299.0, 132.0},
+            {128227.0, 137.0, 181.0, -68982.0, -9.0, 39.0},
+            {123457.0, 11.0, 19.0, -53311.0, 32.0, -4.0},
+            {156994.0, 10.0, -168.0, -1235.0, 0.0, 82.0},
+            {63110.0, 63.0, 27.0, -33228.0, 0.0, -9.0},
+            {-57976.0, -63.0, -189.0, 31429.0, 0.0, -75.0},
+            {-59641.0, -11.0, 149.0, 25543.0, -11.0, 66.0},
+            {-51613.0, -42.0, 129.0, 26366.0, 0.0, 78.0},
+            {45893.0, 50.0, 31.0, -24236.0, -10.0, 20.0},
+            {63384.0, 11.0, -150.0, -1220.0, 0.0, 29.0},
+            {-38571.0, -1.0, 158.0, 16452.0, -11.0, 68.0}};
+
+    private static final ChebyshevTable PRECESSION = new ChebyshevTable(Constants.PRECESSION_SEGMENT_DAYS,
+            Constants.PRECESSION_DEGREE, 4, Constants.PRECESSION_SEGMENTS, PrecessionNutation::precessionAngles);
+    private static final ChebyshevTable NUTATION = new ChebyshevTable(Constants.NUTATION_SEGMENT_DAYS,
+            Constants.NUTATION_DEGREE, 2, Constants.NUTATION_SEGMENTS, PrecessionNutation::nutationAngles);
+
+    /**
+     * Fills in the rotation from the catalog's J2000 directions into directions at the given time, row after row.
+     * <p>
+     * The mean sidereal time (see EphemerisEngine.localSiderealTime) counts from where the equinox would be without
+     * nutation, while nutation also moves the equinox along the equator by the equation of the equinoxes. That shift
+     * is turned into the matrix as well, so the hour angle of every star stays the mean sidereal time minus its Right
+     * Ascension in the rotated directions, and nothing else has to change.
+     *
+     * @param epochMillis the time, in milliseconds since 1970
+     * @param matrix      the nine values to fill
+     */
+    public static void fillMatrix(double epochMillis, double[] matrix) {
+        double daysSinceJ2000 = (epochMillis - Constants.J2000_MILLIS) / Constants.DAY_LENGTH_MILLIS;
+        double gamma = PRECESSION.evaluate(daysSinceJ2000, 0);
+        double phi = PRECESSION.evaluate(daysSinceJ2000, 1);
+        double psi = PRECESSION.evaluate(daysSinceJ2000, 2);
+        double meanObliquity = PRECESSION.evaluate(daysSinceJ2000, 3);
+        double nutationLongitude = NUTATION.evaluate(daysSinceJ2000, 0);
+        double nutationObliquity = NUTATION.evaluate(daysSinceJ2000, 1);
+        double equationOfEquinoxes = nutationLongitude * Math.cos(meanObliquity);
+
+        matrix[0] = 1;
+        matrix[1] = 0;
+        matrix[2] = 0;
+        matrix[3] = 0;
+        matrix[4] = 1;
+        matrix[5] = 0;
+        matrix[6] = 0;
+        matrix[7] = 0;
+        matrix[8] = 1;
+        rotateZ(gamma, matrix);
+        rotateX(phi, matrix);
+        rotateZ(-(psi + nutationLongitude), matrix);
+        rotateX(-(meanObliquity + nutationObliquity), matrix);
+        rotateZ(equationOfEquinoxes, matrix);
+    }
+
+    /**
+     * Evaluates the IAU 2006 Fukushima-Williams precession angles straight from their polynomials.
+     *
+     * @param daysSinceJ2000 the time, in days since noon on January 1, 2000
+     * @param angles         array to write gamma, phi, psi and the mean obliquity of the ecliptic into, in radians
+     */
+    public static void precessionAngles(double daysSinceJ2000, double[] angles) {
+        double t = daysSinceJ2000 / DAYS_PER_CENTURY;
+        angles[0] = (-0.052928 + (10.556378 + (0.4932044 + (-0.00031238 + (-0.000002788 + 0.0000000260 * t) * t) * t)
+                * t) * t) * ARCSECONDS_TO_RADIANS;
+        angles[1] = (84381.412819 + (-46.811016 + (0.0511268 + (0.00053289 + (-0.000000440 - 0.0000000176 * t) * t)
+                * t) * t) * t) * ARCSECONDS_TO_RADIANS;
+        angles[2] = (-0.041775 + (5038.481484 + (1.5584175 + (-0.00018522 + (-0.000026452 - 0.0000000148 * t) * t)
+                * t) * t) * t) * ARCSECONDS_TO_RADIANS;
+        angles[3] = (84381.406 + (-46.836769 + (-0.0001831 + (0.00200340 + (-0.000000576 - 0.0000000434 * t) * t)
+                * t) * t) * t) * ARCSECONDS_TO_RADIANS;
+    }
+
+    /**
+     * Evaluates nutation straight from its series.
+     *
+     * @param daysSinceJ2000 the time, in days since noon on January 1, 2000
+     * @param angles         array to write the nutation in longitude and in obliquity into, in radians
+     */
+    public static void nutationAngles(double daysSinceJ2000, double[] angles) {
+        double t = daysSinceJ2000 / DAYS_PER_CENTURY;
+        double[] arguments = {
+                fundamentalArgument(485868.249036, 1717915923.2178, t),
+                fundamentalArgument(1287104.79305, 129596581.0481, t),
+                fundamentalArgument(335779.526232, 1739527262.8478, t),
+                fundamentalArgument(1072260.70369, 1602961601.2090, t),
+                fundamentalArgument(450160.398036, -6962890.5431, t)};
+
+        double longitude = 0;
+        double obliquity = 0;
+        //summed smallest term first, so the small terms are not lost against the large ones
+        for (int i = NUTATION_MULTIPLES.length - 1; i >= 0; i--) {
+            double argument = 0;
+            for (int j = 0; j < arguments.length; j++) {
+                argument += NUTATION_MULTIPLES[i][j] * arguments[j];
+            }
+            double sin = Math.sin(argument);
+            double cos = Math.cos(argument);
+            double[] a = NUTATION_AMPLITUDES[i];
+            longitude += (a[0] + a[1] * t) * sin + a[2] * cos;
+            obliquity += (a[3] + a[4] * t) * cos + a[5] * sin;
+        }
+        //the fixed offsets stand in for the planetary terms the shortened series leaves out
+        angles[0] = (longitude * 1e-7 - 0.000135) * ARCSECONDS_TO_RADIANS;
+        angles[1] = (obliquity * 1e-7 + 0.000388) * ARCSECONDS_TO_RADIANS;
+    }
+
+    /**
+     * Helper method for one of the fundamental arguments of nutation, which grow steadily with time.
+     *
+     * @param start     the value at J2000, in arcseconds
+     * @param perCentury the change per century, in arcseconds
+     * @param t          the time, in centuries since J2000
+     * @return the argument, in radians
+     */
+    private static double fundamentalArgument(double start, double perCentury, double t) {
+        return ((start + perCentury * t) % TURN_ARCSECONDS) * ARCSECONDS_TO_RADIANS;
+    }
+
+    /**
+     * Helper method to turn the axes of a rotation about the x axis, applied after the rotation already in matrix.
+     *
+     * @param angle  the angle, in radians
+     * @param matrix the rotation, row after row, changed in place
+     */
+    private static void rotateX(double angle, double[] matrix) {
+        double sin = Math.sin(angle);
+        double cos = Math.cos(angle);
+        for (int column = 0; column < 3; column++) {
+            double y = matrix[3 + column];
+            double z = matrix[6 + column];
+            matrix[3 + column] = cos * y + sin * z;
+            matrix[6 + column] = cos * z - sin * y;
+        }
+    }
+
+    /**
+     * Helper method to turn the axes of a rotation about the z axis, applied after the rotation already in matrix.
+     *
+     * @param angle  the angle, in radians
+     * @param matrix the rotation, row after row, changed in place
+     */
+    private static void rotateZ(double angle, double[] matrix) {
+        double sin = Math.sin(angle);
+        double cos = Math.cos(angle);
+        for (int column = 0; column < 3; column++) {
+            double x = matrix[column];
+            double y = matrix[3 + column];
+            matrix[column] = cos * x + sin * y;
+            matrix[3 + column] = cos * y - sin * x;
+        }
+    }
+}
@@ -0,0 +1,180 @@
+package cartoon;
+
+import java.nio.DoubleBuffer;
+
+/**
+ * Turns many stars into screen positions at once. Each star is rotated into an (east, north, up) direction with the
+ * matrix of a frame and projected onto the screen in one tight loop, which reads the star straight from the StarBuffer
+ * and writes its position straight into the frame's buffers, so nothing is copied on the way and no memory on the heap
+ * grows with the number of stars.
+ * <p>
+ * Projecting one point with calculateR, transformX and transformY takes four trig functions: asin for the altitude,
+ * atan2 for the azimuth, and sin and cos of the azimuth again. None of these are needed: sin and cos of the azimuth
+ * are simply east and north divided by their length, and the distance from the zenith is acos(up), which is worked
+ * out with a short polynomial (good to 2e-8 radians, a few millionths of a pixel). The loop is then only
+ * multiplications, additions, a division and two square roots with no branches, which the JIT can unroll and
+ * vectorize. Setting Constants.SCALAR_PROJECTION goes back to projecting one point at a time with the original
+ * methods.
+ * <p>
+ * Positions are worked out for a Viewport: zoomed in, the zenith is simply somewhere else and every distance from it
+ * is that many times longer, so zooming costs nothing extra.
+ * <p>
+ * Nothing is kept between calls, so tasks working on different ranges of the same frame can project at once.
+ */
+public class ProjectionKernel {
+    private static final double HALF_PI = Math.PI / 2;
+
+    /**
+     * Coefficients of acos(x) / sqrt(1 - x) for x from 0 to 1, lowest power first (Abramowitz and Stegun 4.4.46).
+     */
+    private static final double ACOS_0 = 1.5707963050;
+    private static final double ACOS_1 = -0.2145988016;
+    private static final double ACOS_2 = 0.0889789874;
+    private static final double ACOS_3 = -0.0501743046;
+    private static final double ACOS_4 = 0.0308918810;
+    private static final double ACOS_5 = -0.0170881256;
+    private static final double ACOS_6 = 0.0066700901;
+    private static final double ACOS_7 = -0.0012624911;
+
+    /**
+     * Rotates a range of stars into (east, north, up) directions, and projects them onto the screen.
+     *
+     * @param stars    the working values of the catalog
+     * @param indices  catalog index of the star in each position
+     * @param matrix   rotation from equatorial into Alt-Az coordinates, see ObserverTransform.fillMatrix
+     * @param viewport the part of the dome shown
+     * @param x        buffer to write the x positions into
+     * @param y        buffer to write the y positions into
+     * @param from     first position
+     * @param to       position after the last
+     */
+    public static void project(StarBuffer stars, int[] indices, double[] matrix, Viewport viewport, DoubleBuffer x,
+                               DoubleBuffer y, int from, int to) {
+        for (int j = from; j < to; j++) {
+            int i = indices[j];
+            place(matrix, stars.getEquatorialX(i), stars.getEquatorialY(i), stars.getEquatorialZ(i), viewport, x, y,
+                    j);
+        }
+    }
+
+    /**
+     * Rotates a range of directions that are not stars of the catalog, such as the centers of the asterisms, into
+     * (east, north, up) directions, and projects them onto the screen.
+     *
+     * @param directionX x part of each direction, as a unit vector in equatorial coordinates
+     * @param directionY y part of each direction
+     * @param directionZ z part of each direction
+     * @param matrix     rotation from equatorial into Alt-Az coordinates, see ObserverTransform.fillMatrix
+     * @param viewport   the part of the dome shown
+     * @param x          buffer to write the x positions into
+     * @param y          buffer to write the y positions into
+     * @param from       first position
+     * @param to         position after the last
+     */
+    public static void project(double[] directionX, double[] directionY, double[] directionZ, double[] matrix,
+                               Viewport viewport, DoubleBuffer x, DoubleBuffer y, int from, int to) {
+        for (int j = from; j < to; j++) {
+            place(matrix, directionX[j], directionY[j], directionZ[j], viewport, x, y, j);
+        }
+    }
+
+    /**
+     * Helper method to rotate one direction into (east, north, up) and write where it is on the screen.
+     *
+     * @param matrix   rotation from equatorial into Alt-Az coordinates
+     * @param dx       x part of the direction in equatorial coordinates
+     * @param dy       y part of the direction
+     * @param dz       z part of the direction
+     * @param viewport the part of the dome shown
+     * @param x        buffer to write the x position into
+     * @param y        buffer to write the y position into
+     * @param j        position to write
+     */
+    private static void place(double[] matrix, double dx, double dy, double dz, Viewport viewport, DoubleBuffer x,
+                              DoubleBuffer y, int j) {
+        double e = matrix[0] * dx + matrix[1] * dy + matrix[2] * dz;
+        double n = matrix[3] * dx + matrix[4] * dy + matrix[5] * dz;
+        double u = matrix[6] * dx + matrix[7] * dy + matrix[8] * dz;
+        if (Constants.SCALAR_PROJECTION) {
+            double altitude = Math.toDegrees(Math.asin(Math.max(-1, Math.min(1, u))));
+            double azimuth = Math.toDegrees(Math.atan2(e, n));
+            double r = EphemerisEngine.calculateR(altitude, viewport);
+            x.put(j, EphemerisEngine.transformX(azimuth, r, viewport));
+            y.put(j, EphemerisEngine.transformY(azimuth, r, viewport));
+            return;
+        }
+        double k = zenithDistance(u) * viewport.getScale() / Math.max(Math.sqrt(e * e + n * n), Double.MIN_NORMAL);
+        x.put(j, viewport.getZenithX() + k * e);
+        y.put(j, viewport.getZenithY() + k * n);
+    }
+
+    /**
+     * The bulk projection: turns a range of (east, north, up) directions into screen positions, with the zenith at
+     * (zenithX, zenithY) and scale screen units per radian from it, giving the same positions as calculateR,
+     * transformX and transformY of EphemerisEngine. x and y may be the same arrays as east and north.
+     *
+     * @param east    east part of each direction
+     * @param north   north part of each direction
+     * @param up      up part of each direction
+     * @param x       array to write the x positions into
+     * @param y       array to write the y positions into
+     * @param scale   screen units per radian from the zenith
+     * @param zenithX x position of the zenith
+     * @param zenithY y position of the zenith
+     * @param from    first position
+     * @param to      position after the last
+     */
+    public static void project(double[] east, double[] north, double[] up, double[] x, double[] y, double scale,
+                               double zenithX, double zenithY, int from, int to) {
+        for (int i = from; i < to; i++) {
+            double e = east[i];
+            double n = north[i];
+            //length of the direction along the ground, kept above zero so the zenith itself simply ends up at the
+            //center
+            double horizontal = Math.max(Math.sqrt(e * e + n * n), Double.MIN_NORMAL);
+            double k = zenithDistance(up[i]) * scale / horizontal;
+            x[i] = zenithX + k * e;
+            y[i] = zenithY + k * n;
+        }
+    }
+
+    /**
+     * Helper method to find the distance of a direction from the zenith, in radians, from its up part, with the
+     * polynomial for acos.
+     *
+     * @param up up part of the direction
+     * @return acos of up
+     */
+    private static double zenithDistance(double up) {
+        //acos of |up|, and then the distance from the zenith is either that or pi minus that, depending on the sign
+        //of up
+        double a = Math.abs(up);
+        double polynomial = ACOS_0 + a * (ACOS_1 + a * (ACOS_2 + a * (ACOS_3 + a * (ACOS_4 + a * (ACOS_5
+                + a * (ACOS_6 + a * ACOS_7))))));
+        double acos = Math.sqrt(Math.max(0, 1 - a)) * polynomial;
+        return HALF_PI - Math.copySign(HALF_PI - acos, up);
+    }
+
+    /**
+     * The scalar fallback: the same as project, one point at a time through the altitude and azimuth.
+     *
+     * @param east     east part of each direction
+     * @param north    north part of each direction
+     * @param up       up part of each direction
+     * @param x        array to write the x positions into
+     * @param y        array to write the y positions into
+     * @param viewport the part of the dome shown
+     * @param from     first position
+     * @param to       position after the last
+     */
+    public static void projectScalar(double[] east, double[] north, double[] up, double[] x, double[] y,
+                                     Viewport viewport, int from, int to) {
+        for (int i = from; i < to; i++) {
+            double altitude = Math.toDegrees(Math.asin(Math.max(-1, Math.min(1, up[i]))));
+            double azimuth = Math.toDegrees(Math.atan2(east[i], north[i]));
+            double r = EphemerisEngine.calculateR(altitude, viewport);
+            x[i] = EphemerisEngine.transformX(azimuth, r, viewport);
+            y[i] = EphemerisEngine.transformY(azimuth, r, viewport);
+        }
+    }
+}
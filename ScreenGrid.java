@@ -0,0 +1,115 @@
+package cartoon;
+
+import java.nio.DoubleBuffer;
+import java.util.Arrays;
+
+/**
+ * Finds the star nearest to a point on the screen, such as the mouse, without looking at every star. The screen is
+ * cut into square cells of Constants.PICK_CELL_SIZE, and the visible stars of a frame are sorted by the cell they
+ * are in, so only the few cells around the point have to be searched. Finding a star then takes time in proportion
+ * to the number of stars in those cells, a few microseconds even with a million stars above the horizon, rather
+ * than in proportion to all of them, as asking JavaFX to pick between one node per star would.
+ * <p>
+ * The stars move every frame, so the grid is simply built again along with every frame, on the pool (see
+ * EphemerisEngine.computeFrame), with a counting sort into flat arrays like LabelLayout, which takes one pass over
+ * the stars and one over the cells, and creates no objects once the grid has grown to the most stars seen at once
+ * and the largest view. Stars off the screen are left out.
+ */
+public class ScreenGrid {
+    private final double cellSize;
+    private int columns;
+    private int rows;
+    private int[] cellStart; //stars of cell c are cellStars[cellStart[c]] to cellStars[cellStart[c + 1] - 1]
+    private int[] cellStars; //positions of the visible stars, by cell
+    private int[] starCell; //cell of each visible star, or -1 if it is off the screen
+
+    public ScreenGrid() {
+        this.cellSize = Constants.PICK_CELL_SIZE;
+        this.cellStart = new int[1];
+        this.cellStars = new int[0];
+        this.starCell = new int[0];
+    }
+
+    /**
+     * Sorts the visible stars of a frame into the grid.
+     *
+     * @param x      screen x position of every visible star
+     * @param y      screen y position of every visible star
+     * @param count  number of visible stars
+     * @param width  width of the view
+     * @param height height of the view
+     */
+    public void build(DoubleBuffer x, DoubleBuffer y, int count, double width, double height) {
+        this.columns = Math.max(1, (int) Math.ceil(width / this.cellSize));
+        this.rows = Math.max(1, (int) Math.ceil(height / this.cellSize));
+        if (this.columns * this.rows + 1 > this.cellStart.length) {
+            this.cellStart = new int[this.columns * this.rows + 1];
+        }
+        if (count > this.starCell.length) {
+            int capacity = Math.max(count, 2 * this.starCell.length);
+            this.cellStars = new int[capacity];
+            this.starCell = new int[capacity];
+        }
+
+        Arrays.fill(this.cellStart, 0);
+        for (int k = 0; k < count; k++) {
+            int column = (int) Math.floor(x.get(k) / this.cellSize);
+            int row = (int) Math.floor(y.get(k) / this.cellSize);
+            if (column < 0 || column >= this.columns || row < 0 || row >= this.rows) {
+                this.starCell[k] = -1;
+                continue;
+            }
+            this.starCell[k] = row * this.columns + column;
+            this.cellStart[this.starCell[k] + 1]++;
+        }
+        for (int cell = 0; cell < this.columns * this.rows; cell++) {
+            this.cellStart[cell + 1] += this.cellStart[cell];
+        }
+        //cellStart[c] counts up while the cell is filled, and ends up where cell c + 1 starts, so it is moved back
+        for (int k = 0; k < count; k++) {
+            if (this.starCell[k] >= 0) {
+                this.cellStars[this.cellStart[this.starCell[k]]++] = k;
+            }
+        }
+        for (int cell = this.columns * this.rows; cell > 0; cell--) {
+            this.cellStart[cell] = this.cellStart[cell - 1];
+        }
+        this.cellStart[0] = 0;
+    }
+
+    /**
+     * Finds the visible star nearest to a point, within the given distance.
+     *
+     * @param x           screen x position of every visible star, as given to build
+     * @param y           screen y position of every visible star
+     * @param pointX      x position of the point
+     * @param pointY      y position of the point
+     * @param maxDistance how far from the point the star may be
+     * @return position of the star among the visible stars, or -1 if there is none that close
+     */
+    public int findNearest(DoubleBuffer x, DoubleBuffer y, double pointX, double pointY, double maxDistance) {
+        int firstColumn = Math.max(0, (int) Math.floor((pointX - maxDistance) / this.cellSize));
+        int lastColumn = Math.min(this.columns - 1, (int) Math.floor((pointX + maxDistance) / this.cellSize));
+        int firstRow = Math.max(0, (int) Math.floor((pointY - maxDistance) / this.cellSize));
+        int lastRow = Math.min(this.rows - 1, (int) Math.floor((pointY + maxDistance) / this.cellSize));
+
+        int nearest = -1;
+        double nearestSquared = maxDistance * maxDistance;
+        for (int row = firstRow; row <= lastRow; row++) {
+            for (int column = firstColumn; column <= lastColumn; column++) {
+                int cell = row * this.columns + column;
+                for (int i = this.cellStart[cell]; i < this.cellStart[cell + 1]; i++) {
+                    int k = this.cellStars[i];
+                    double dx = x.get(k) - pointX;
+                    double dy = y.get(k) - pointY;
+                    double squared = dx * dx + dy * dy;
+                    if (squared <= nearestSquared) {
+                        nearest = k;
+                        nearestSquared = squared;
+                    }
+                }
+            }
+        }
+        return nearest;
+    }
+}
@@ -0,0 +1,28 @@
+package cartoon;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * A frame of the sky computed by a SkySimulator on the pool, for Java Flight Recorder. The event's own duration is
+ * the time the step took.
+ */
+@Name("cartoon.SimulationStep")
+@Label("Simulation Step")
+@Category("Planetarium")
+@Description("One frame of the sky computed on the compute pool")
+@StackTrace(false)
+public class SimulationStepEvent extends jdk.jfr.Event {
+    @Label("Visible Stars")
+    @Description("Stars above the horizon in the frame")
+    int visibleStars;
+
+    @Label("Allocated")
+    @Description("Bytes allocated by the pool thread during the step")
+    @DataAmount(DataAmount.BYTES)
+    long allocatedBytes;
+}
@@ -0,0 +1,277 @@
+package cartoon;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+/**
+ * Measures the hot paths of the program without starting JavaFX: computing the sky at a new time, finding the star
+ * under the mouse, finding the stars above the horizon, projecting directions onto the screen (in bulk and one at a
+ * time, along with the largest difference between the two), advancing the clock, and computing a year of hourly
+ * positions. Each is run on synthetic catalogs of random stars of several sizes, and reported as time per operation
+ * and bytes allocated per operation, as a baseline to compare changes against.
+ * <p>
+ * Before that, the rotation the GroupRenderer turns the sky with between placing its nodes is compared with the
+ * exact positions from the ProjectionKernel at every observing site, and how far off it is gets printed, since that
+ * renderer is only an approximation.
+ * <p>
+ * Run with: java cartoon.SkyBenchmark [catalog sizes...]
+ */
+public class SkyBenchmark {
+    private static final int[] DEFAULT_SIZES = {10, 10000, 1000000};
+    private static final long WARMUP_NANOS = 2000000000L;
+    private static final long MEASURE_NANOS = 3000000000L;
+    private static final long FRAME_NANOS = 16666667; //real time between two frames at 60 Hz
+    private static final double STEP_MILLIS = 60000; //simulated time between two calls of computeFrame
+    private static final int HOURS_PER_YEAR = 8760;
+    //a year of positions is only computed for catalogs small enough for the result to fit in memory comfortably
+    private static final long MAX_EPHEMERIS_POSITIONS = 20000000L;
+    //directions the group rotation is compared with the exact positions with
+    private static final int GROUP_CHECK_DIRECTIONS = 10000;
+
+    private static long sink; //results are added here so the JIT cannot remove the work
+
+    /**
+     * A single operation to measure.
+     */
+    private interface Operation {
+        void run(long iteration);
+    }
+
+    public static void main(String[] argv) {
+        int[] sizes = DEFAULT_SIZES;
+        if (argv.length > 0) {
+            sizes = new int[argv.length];
+            for (int i = 0; i < argv.length; i++) {
+                sizes[i] = Integer.parseInt(argv[i]);
+            }
+        }
+
+        measureGroupRotation();
+
+        System.out.printf("%-14s %10s %14s %14s%n", "benchmark", "stars", "ns/op", "bytes/op");
+        for (int size : sizes) {
+            StarCatalog catalog = syntheticCatalog(size);
+            NightSky sky = new NightSky(catalog);
+            EphemerisEngine engine = new EphemerisEngine(sky);
+            Observer observer = new Observer(Constants.LATITUDE, Constants.LONGITUDE);
+            SkyFrame frame = new SkyFrame(sky);
+            SkyIndex index = new SkyIndex(catalog);
+            int[] visibleCells = new int[index.getCellCount()];
+            int[] visibleStars = new int[size];
+            SkyClock clock = new SkyClock(Constants.EPOCH_MILLIS);
+            double[] precession = new double[9];
+
+            measure("computeFrame", size, i -> engine.computeFrame(Constants.EPOCH_MILLIS + i * STEP_MILLIS, observer,
+                    frame));
+            //the mouse goes over the frame in a spiral around the zenith, so it is over the sky for every call
+            Viewport viewport = Viewport.WHOLE_SKY;
+            measure("pick", size, i -> sink += frame.findStar(viewport.getZenithX() + (i % 250) * Math.cos(i * 0.1),
+                    viewport.getZenithY() + (i % 250) * Math.sin(i * 0.1), Constants.PICK_DISTANCE));
+            measure("cull", size, i -> sink += index.copyStars(visibleCells, index.findVisibleCells(i * 0.01,
+                    Math.toRadians(Constants.LATITUDE), 0, visibleCells), visibleStars));
+            double[][] directions = randomDirections(size);
+            double[] x = new double[size];
+            double[] y = new double[size];
+            double[] scalarX = new double[size];
+            double[] scalarY = new double[size];
+            measure("project", size, i -> ProjectionKernel.project(directions[0], directions[1], directions[2], x, y,
+                    viewport.getScale(), viewport.getZenithX(), viewport.getZenithY(), 0, size));
+            measure("project.scalar", size, i -> ProjectionKernel.projectScalar(directions[0], directions[1],
+                    directions[2], scalarX, scalarY, viewport, 0, size));
+            double error = 0;
+            for (int i = 0; i < size; i++) {
+                error = Math.max(error, Math.max(Math.abs(x[i] - scalarX[i]), Math.abs(y[i] - scalarY[i])));
+            }
+            System.out.printf("%-14s %10d %14.3g px%n", "project.error", size, error);
+            measure("clock.advance", size, i -> clock.advance(FRAME_NANOS, 16));
+            measure("precession", size, i -> PrecessionNutation.fillMatrix(Constants.EPOCH_MILLIS + i * STEP_MILLIS,
+                    precession));
+            if ((long) size * HOURS_PER_YEAR <= MAX_EPHEMERIS_POSITIONS) {
+                double[] hours = new double[HOURS_PER_YEAR];
+                for (int i = 0; i < hours.length; i++) {
+                    hours[i] = Constants.EPOCH_MILLIS + i * 3600000.0;
+                }
+                measure("ephemeris.year", size, i -> sink += engine.computeEphemeris(observer, hours).getTimeCount());
+            }
+        }
+        System.out.println("checksum " + sink);
+    }
+
+    /**
+     * Helper method to run an operation until the JIT has warmed up, then time it and count what it allocates.
+     *
+     * @param name      name of the benchmark, to print
+     * @param size      number of stars in the catalog, to print
+     * @param operation the operation to measure
+     */
+    private static void measure(String name, int size, Operation operation) {
+        long iteration = 0;
+        long start = System.nanoTime();
+        while (System.nanoTime() - start < WARMUP_NANOS) {
+            operation.run(iteration++);
+        }
+        //the clock is read about once a millisecond, so it neither dominates fast operations nor overshoots slow ones
+        long batch = Math.max(1, Math.min(100, iteration * 1000000L / WARMUP_NANOS));
+
+        long operations = 0;
+        long allocatedBefore = allocatedBytes();
+        start = System.nanoTime();
+        long elapsed;
+        do {
+            for (int i = 0; i < batch; i++) {
+                operation.run(iteration++);
+            }
+            operations += batch;
+            elapsed = System.nanoTime() - start;
+        } while (elapsed < MEASURE_NANOS);
+        long allocated = allocatedBytes() - allocatedBefore;
+
+        System.out.printf("%-14s %10d %14.1f %14.1f%n", name, size, (double) elapsed / operations,
+                (double) allocated / operations);
+    }
+
+    /**
+     * @return bytes allocated by this thread so far, as counted by the JVM
+     */
+    private static long allocatedBytes() {
+        return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean())
+                .getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    /**
+     * Measures the GroupRenderer's approximation at every observing site: directions are placed at their exact
+     * positions, turned on the screen about the pole above the horizon (see Viewport.getPoleY and
+     * ObserverTransform.getTurnAngle) by as much as the sky turns before the nodes are placed again, and compared with
+     * their exact positions at that time, where they are furthest off.
+     */
+    private static void measureGroupRotation() {
+        double[][] directions = randomDirections(GROUP_CHECK_DIRECTIONS);
+        double[] precession = new double[9];
+        PrecessionNutation.fillMatrix(Constants.EPOCH_MILLIS, precession);
+        Viewport viewport = Viewport.WHOLE_SKY;
+        double turned = Constants.GROUP_REBASE_RADIANS;
+
+        System.out.printf("%-14s %-14s %14s %14s%n", "group.error", "site", "mean px", "max px");
+        for (int site = 0; site < Constants.SITE_NAMES.length; site++) {
+            ObserverTransform transform = ObserverTransform.of(new Observer(Constants.SITE_LATITUDES[site],
+                    Constants.SITE_LONGITUDES[site]));
+            double[][] placed = project(directions, transform, 0, precession, viewport);
+            double[][] exact = project(directions, transform, turned, precession, viewport);
+
+            double angle = Math.toRadians(transform.getTurnAngle(turned));
+            double cos = Math.cos(angle);
+            double sin = Math.sin(angle);
+            double pivotX = viewport.getZenithX();
+            double pivotY = viewport.getPoleY(transform);
+            double total = 0;
+            double max = 0;
+            int count = 0;
+            for (int i = 0; i < GROUP_CHECK_DIRECTIONS; i++) {
+                if (placed[2][i] < 0 || exact[2][i] < 0) {
+                    continue;
+                }
+                //a Rotate turns clockwise on the screen, since y grows downwards
+                double dx = placed[0][i] - pivotX;
+                double dy = placed[1][i] - pivotY;
+                double error = Math.hypot(pivotX + dx * cos - dy * sin - exact[0][i],
+                        pivotY + dx * sin + dy * cos - exact[1][i]);
+                total += error;
+                max = Math.max(max, error);
+                count++;
+            }
+            System.out.printf("%-14s %-14s %14.1f %14.1f%n", "group.error", Constants.SITE_NAMES[site],
+                    total / count, max);
+        }
+    }
+
+    /**
+     * Helper method to work out the exact screen positions of directions, with the ProjectionKernel.
+     *
+     * @param directions    the directions, as unit vectors in the catalog's equatorial coordinates
+     * @param transform     where the sky is seen from
+     * @param siderealAngle local sidereal time, in radians
+     * @param precession    rotation from the catalog's directions into those of the time
+     * @param viewport      the part of the dome shown
+     * @return the x and y positions, and the up part of every direction, which is negative below the horizon
+     */
+    private static double[][] project(double[][] directions, ObserverTransform transform, double siderealAngle,
+                                      double[] precession, Viewport viewport) {
+        int size = directions[0].length;
+        double[] m = new double[9];
+        transform.fillMatrix(siderealAngle, precession, m);
+        double[] east = new double[size];
+        double[] north = new double[size];
+        double[] up = new double[size];
+        for (int i = 0; i < size; i++) {
+            east[i] = m[0] * directions[0][i] + m[1] * directions[1][i] + m[2] * directions[2][i];
+            north[i] = m[3] * directions[0][i] + m[4] * directions[1][i] + m[5] * directions[2][i];
+            up[i] = m[6] * directions[0][i] + m[7] * directions[1][i] + m[8] * directions[2][i];
+        }
+        double[] x = new double[size];
+        double[] y = new double[size];
+        ProjectionKernel.project(east, north, up, x, y, viewport.getScale(), viewport.getZenithX(),
+                viewport.getZenithY(), 0, size);
+        return new double[][]{x, y, up};
+    }
+
+    /**
+     * Helper method for random (east, north, up) directions, spread evenly over the sky.
+     *
+     * @param size number of directions
+     * @return the east, north and up parts of the directions
+     */
+    private static double[][] randomDirections(int size) {
+        Random random = new Random(size);
+        double[][] directions = new double[3][size];
+        for (int i = 0; i < size; i++) {
+            double up = 2 * random.nextDouble() - 1;
+            double azimuth = 2 * Math.PI * random.nextDouble();
+            directions[0][i] = Math.sqrt(1 - up * up) * Math.sin(azimuth);
+            directions[1][i] = Math.sqrt(1 - up * up) * Math.cos(azimuth);
+            directions[2][i] = up;
+        }
+        return directions;
+    }
+
+    /**
+     * Helper method to write a catalog of random stars, spread evenly over the sky, through the same import used for
+     * real catalogs.
+     *
+     * @param size number of stars
+     * @return the catalog
+     */
+    private static StarCatalog syntheticCatalog(int size) {
+        try {
+            Path directory = Files.createTempDirectory("sky-benchmark");
+            Path starFile = directory.resolve("stars.csv");
+            Path linesFile = directory.resolve("asterisms.txt");
+            Path catalogFile = directory.resolve("catalog.bin");
+
+            Random random = new Random(size);
+            StringBuilder stars = new StringBuilder("hr,ra,dec,mag\n");
+            for (int i = 0; i < size; i++) {
+                stars.append(i + 1).append(',')
+                        .append(random.nextDouble() * 24).append(',')
+                        .append(Math.toDegrees(Math.asin(2 * random.nextDouble() - 1))).append(',')
+                        .append(random.nextDouble() * 12 - 1).append('\n');
+            }
+            Files.writeString(starFile, stars);
+            //one small asterism, so the asterism code paths are part of the measurement
+            Files.writeString(linesFile, size < 2 ? "" : "Benchmark|1 2\n");
+
+            CatalogImporter.importCatalog(starFile, linesFile, catalogFile);
+            //files are deleted in the reverse order they are registered in, so the directory goes first
+            directory.toFile().deleteOnExit();
+            starFile.toFile().deleteOnExit();
+            linesFile.toFile().deleteOnExit();
+            catalogFile.toFile().deleteOnExit();
+            return new StarCatalog(catalogFile);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not write synthetic catalog", e);
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package cartoon;
+
+/**
+ * Keeps track of the time shown by the program. At a multiplier of 1, the sky turns by one degree every
+ * Constants.TURN_DURATION seconds of real time, and the clock moves forward by however much real time has actually
+ * passed, scaled by how much sky time one degree takes. A late frame therefore moves the clock further instead of
+ * slowing the sky down.
+ * <p>
+ * The sky turns once per sidereal day, which is a solar day minus the 1/365 day shift due to the orbit of the earth,
+ * so a turn of one degree takes 1/360 of a sidereal day of the clock's (solar) time.
+ * <p>
+ * Time is kept as whole seconds and nanoseconds since 1970 in two longs, so ticking never creates objects, and the
+ * clock neither loses precision nor runs out of range however far it runs. Fractions of a nanosecond are carried over
+ * from tick to tick, so they do not get lost either.
+ */
+public class SkyClock {
+    private static final long NANOS_PER_SECOND = 1000000000L;
+    //sky nanoseconds that pass per real nanosecond at a multiplier of 1
+    private static final double SKY_NANOS_PER_REAL_NANO = -Constants.ONE_RADIAN_CCW / (2 * Math.PI)
+            * Constants.SIDEREAL_DAY_NANOS / (Constants.TURN_DURATION * NANOS_PER_SECOND);
+
+    private long seconds;
+    private long nanos; //always between 0 and NANOS_PER_SECOND - 1
+    private double carriedNanos; //fraction of a nanosecond left over from earlier ticks
+
+    /**
+     * @param startMillis time the clock starts at, in milliseconds since 1970
+     */
+    public SkyClock(long startMillis) {
+        this.setTimeMillis(startMillis);
+    }
+
+    /**
+     * Moves the clock forward by the sky time that corresponds to the given real time at the given speed.
+     *
+     * @param elapsedNanos real time that has passed, in nanoseconds
+     * @param multiplier   speed multiplier, negative to run backwards in time
+     */
+    public void advance(long elapsedNanos, double multiplier) {
+        this.addNanos(elapsedNanos * multiplier * SKY_NANOS_PER_REAL_NANO);
+    }
+
+    /**
+     * Moves the clock by the given amount of time.
+     *
+     * @param amount nanoseconds to move forward by (negative to move backwards), including fractions
+     */
+    public void addNanos(double amount) {
+        amount += this.carriedNanos;
+        long whole = (long) Math.floor(amount);
+        this.carriedNanos = amount - whole;
+
+        this.seconds += Math.floorDiv(whole, NANOS_PER_SECOND);
+        this.nanos += Math.floorMod(whole, NANOS_PER_SECOND);
+        if (this.nanos >= NANOS_PER_SECOND) {
+            this.nanos -= NANOS_PER_SECOND;
+            this.seconds++;
+        }
+    }
+
+    /**
+     * Jumps straight to the given time.
+     *
+     * @param epochMillis the new time, in milliseconds since 1970
+     */
+    public void setTimeMillis(long epochMillis) {
+        this.seconds = Math.floorDiv(epochMillis, 1000L);
+        this.nanos = Math.floorMod(epochMillis, 1000L) * 1000000L;
+        this.carriedNanos = 0;
+    }
+
+    /**
+     * @return the current time, in milliseconds since 1970, including fractions of a millisecond
+     */
+    public double getTime() {
+        return this.seconds * 1000.0 + this.nanos / 1000000.0;
+    }
+
+    /**
+     * @return the current time, rounded down to whole milliseconds since 1970
+     */
+    public long getTimeMillis() {
+        return this.seconds * 1000L + this.nanos / 1000000L;
+    }
+
+    /**
+     * @return the current time, rounded down to whole seconds since 1970
+     */
+    public long getTimeSeconds() {
+        return this.seconds;
+    }
+}
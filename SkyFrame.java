@@ -0,0 +1,336 @@
+package cartoon;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.util.Arrays;
+
+/**
+ * Everything that changes about the sky from one moment to the next: which stars are above the horizon and where
+ * they are on the screen, where the stars of the asterisms are, and where the asterism names go. The EphemerisEngine
+ * fills a frame for a given time, and a SkyRenderer draws it.
+ * <p>
+ * Positions are kept in the order of the stars they belong to, not by catalog index: the k-th visible star is at
+ * (getVisibleX(k), getVisibleY(k)), and the star in slot s of the asterism stars (see NightSky.getAsterismStars) at
+ * (getAsterismStarX(s), getAsterismStarY(s)). A frame therefore only takes as much memory as there are stars above
+ * the horizon, no matter how large the catalog is, and grows the first time more are visible.
+ * <p>
+ * Frames are reused rather than created for every tick. A frame only ever belongs to one thread at a time (see
+ * SkySimulator): it is filled completely before it is handed over, and not touched again by the thread that filled
+ * it until it is handed back.
+ */
+public class SkyFrame {
+    private int[] visibleStars;
+    private int visibleCount;
+    private DoubleBuffer visibleX; //screen positions, kept off the heap like StarBuffer
+    private DoubleBuffer visibleY;
+    private final DoubleBuffer asterismStarX;
+    private final DoubleBuffer asterismStarY;
+    private final int[] visibleCells; //cells of the sky index above the horizon, only used while filling
+    private final LabelLayout labelLayout;
+    private final ScreenGrid grid; //the visible stars by where they are on the screen, for finding them by position
+    private final double[] labelX;
+    private final double[] labelY;
+    private final DoubleBuffer labelXBuffer; //the same label positions, for the ProjectionKernel to write into
+    private final DoubleBuffer labelYBuffer;
+    private double time;
+    private double siderealAngle;
+    private ObserverTransform transform; //where the sky in the frame is seen from
+    private Viewport viewport; //the part of the dome the screen positions are for
+    private final double[] precession; //rotation from the catalog's directions into those at the frame's time
+    private final double[] matrix; //rotation from equatorial into Alt-Az coordinates at the frame's time
+    private long sequence; //increases with every frame handed over, so a newer frame can be told from an older one
+
+    /**
+     * Creates an empty frame for the given sky, with room for a few visible stars to begin with.
+     *
+     * @param sky the sky the frame shows
+     */
+    public SkyFrame(NightSky sky) {
+        int asterismStarCount = sky.getAsterismStars().length;
+        this.asterismStarX = allocateDoubles(asterismStarCount);
+        this.asterismStarY = allocateDoubles(asterismStarCount);
+        this.visibleCells = new int[sky.getIndex().getCellCount()];
+        this.labelLayout = new LabelLayout(sky.getNames());
+        this.grid = new ScreenGrid();
+        this.labelX = new double[sky.getAsterisms().length];
+        this.labelY = new double[sky.getAsterisms().length];
+        this.labelXBuffer = DoubleBuffer.wrap(this.labelX);
+        this.labelYBuffer = DoubleBuffer.wrap(this.labelY);
+        this.precession = new double[9];
+        this.matrix = new double[9];
+        this.visibleStars = new int[0];
+        this.visibleX = allocateDoubles(0);
+        this.visibleY = allocateDoubles(0);
+        this.viewport = Viewport.WHOLE_SKY;
+        this.sequence = -1;
+    }
+
+    /**
+     * Helper method to allocate an off-heap buffer of doubles.
+     *
+     * @param count number of doubles
+     * @return the buffer
+     */
+    private static DoubleBuffer allocateDoubles(int count) {
+        return ByteBuffer.allocateDirect(count * Double.BYTES).order(ByteOrder.nativeOrder()).asDoubleBuffer();
+    }
+
+    /**
+     * Makes room for at least the given number of visible stars, at least doubling the room each time so that a
+     * frame only grows a few times. The star indices already written are kept, the positions are not.
+     *
+     * @param count number of visible stars
+     */
+    public void ensureVisibleCapacity(int count) {
+        if (count <= this.visibleStars.length) {
+            return;
+        }
+        int capacity = Math.max(count, 2 * this.visibleStars.length);
+        this.visibleStars = Arrays.copyOf(this.visibleStars, capacity);
+        this.visibleX = allocateDoubles(capacity);
+        this.visibleY = allocateDoubles(capacity);
+    }
+
+    /**
+     * Setters, used while the frame is being filled.
+     */
+
+    /**
+     * Moves a range of the visible stars, or of the stars of the asterisms, to where they are on the screen at the
+     * frame's time. Different ranges can be moved from different threads at once.
+     *
+     * @param stars         the working values of the catalog
+     * @param asterismStars whether to move the stars of the asterisms, rather than the visible stars
+     * @param indices       catalog index of the star in each position
+     * @param from          first position
+     * @param to            position after the last
+     */
+    public void moveStars(StarBuffer stars, boolean asterismStars, int[] indices, int from, int to) {
+        if (asterismStars) {
+            ProjectionKernel.project(stars, indices, this.matrix, this.viewport, this.asterismStarX,
+                    this.asterismStarY, from, to);
+        } else {
+            ProjectionKernel.project(stars, indices, this.matrix, this.viewport, this.visibleX, this.visibleY, from,
+                    to);
+        }
+    }
+
+    /**
+     * Moves the name of every asterism to the center of the asterism at the frame's time, which takes a single
+     * projection per asterism however many stars it has, and then lays the names out so they do not overlap.
+     *
+     * @param sky the sky the frame shows
+     */
+    public void moveLabels(NightSky sky) {
+        ProjectionKernel.project(sky.getCenterX(), sky.getCenterY(), sky.getCenterZ(), this.matrix, this.viewport,
+                this.labelXBuffer, this.labelYBuffer, 0, this.labelX.length);
+        this.labelLayout.layout(this.labelX, this.labelY, this.viewport);
+    }
+
+    /**
+     * Sorts the visible stars into the grid they are found by position with (see findStar), once they have all been
+     * moved.
+     */
+    public void buildGrid() {
+        this.grid.build(this.visibleX, this.visibleY, this.visibleCount, this.viewport.getWidth(),
+                this.viewport.getHeight());
+    }
+
+    /**
+     * Moves every position of the frame into another viewport, such as after the window has been resized, without
+     * working anything out again. Every position is the zenith plus an offset in the direction of the star's azimuth,
+     * which only grows with the scale of the viewport, so the positions already in the frame stand in for a cache of
+     * every star's direction, and moving them takes a multiplication and an addition each. The stars found for the old
+     * viewport are kept, so a zoomed out or larger view may be missing stars at its edges until the next frame is
+     * computed for it.
+     *
+     * @param to the new viewport
+     */
+    public void reproject(Viewport to) {
+        Viewport from = this.viewport;
+        double ratio = to.getScale() / from.getScale();
+        rescale(this.visibleX, this.visibleCount, from.getZenithX(), to.getZenithX(), ratio);
+        rescale(this.visibleY, this.visibleCount, from.getZenithY(), to.getZenithY(), ratio);
+        rescale(this.asterismStarX, this.asterismStarX.capacity(), from.getZenithX(), to.getZenithX(), ratio);
+        rescale(this.asterismStarY, this.asterismStarY.capacity(), from.getZenithY(), to.getZenithY(), ratio);
+        this.labelLayout.reproject(this.labelX, this.labelY, from, to);
+        this.viewport = to;
+        this.buildGrid();
+    }
+
+    /**
+     * Helper method to scale positions about one point and move them to another.
+     *
+     * @param positions the positions
+     * @param count     number of positions to move
+     * @param from      the point they are scaled about
+     * @param to        where that point moves to
+     * @param ratio     how many times further from the point they end up
+     */
+    private static void rescale(DoubleBuffer positions, int count, double from, double to, double ratio) {
+        for (int k = 0; k < count; k++) {
+            positions.put(k, to + (positions.get(k) - from) * ratio);
+        }
+    }
+
+    public void setVisibleCount(int visibleCount) {
+        this.visibleCount = visibleCount;
+    }
+
+    /**
+     * Sets the time and observer of the frame, and the rotation into Alt-Az coordinates that goes with them.
+     *
+     * @param time          the time, in milliseconds since 1970
+     * @param siderealAngle local sidereal time, in radians
+     * @param transform     where the sky is seen from
+     */
+    public void setTime(double time, double siderealAngle, ObserverTransform transform) {
+        this.time = time;
+        this.siderealAngle = siderealAngle;
+        this.transform = transform;
+        PrecessionNutation.fillMatrix(time, this.precession);
+        transform.fillMatrix(siderealAngle, this.precession, this.matrix);
+    }
+
+    /**
+     * Sets the part of the dome the frame is shown in, which every screen position is worked out for. It has to be set
+     * before the stars are moved.
+     *
+     * @param viewport the part of the dome shown
+     */
+    public void setViewport(Viewport viewport) {
+        this.viewport = viewport;
+    }
+
+    public void setSequence(long sequence) {
+        this.sequence = sequence;
+    }
+
+    /**
+     * Getters
+     */
+
+    /**
+     * Finds the visible star nearest to a point on the screen, such as the mouse.
+     *
+     * @param x           x position of the point
+     * @param y           y position of the point
+     * @param maxDistance how far from the point the star may be
+     * @return position of the star among the visible stars, or -1 if there is none that close
+     */
+    public int findStar(double x, double y, double maxDistance) {
+        return this.grid.findNearest(this.visibleX, this.visibleY, x, y, maxDistance);
+    }
+
+    /**
+     * Finds the asterism whose name is drawn at a point on the screen.
+     *
+     * @param x x position of the point
+     * @param y y position of the point
+     * @return index of the asterism, or -1 if no name is there
+     */
+    public int findLabel(double x, double y) {
+        return this.labelLayout.find(this.labelX, this.labelY, x, y);
+    }
+
+    /**
+     * @param x x part of a direction, as a unit vector in the catalog's equatorial coordinates
+     * @param y y part of the direction
+     * @param z z part of the direction
+     * @return altitude of the direction at the frame's time, in degrees
+     */
+    public double getAltitude(double x, double y, double z) {
+        double up = this.matrix[6] * x + this.matrix[7] * y + this.matrix[8] * z;
+        return Math.toDegrees(Math.asin(Math.max(-1, Math.min(1, up))));
+    }
+
+    /**
+     * @param x x part of a direction, as a unit vector in the catalog's equatorial coordinates
+     * @param y y part of the direction
+     * @param z z part of the direction
+     * @return azimuth of the direction at the frame's time, in degrees east of north, from 0 to 360
+     */
+    public double getAzimuth(double x, double y, double z) {
+        double east = this.matrix[0] * x + this.matrix[1] * y + this.matrix[2] * z;
+        double north = this.matrix[3] * x + this.matrix[4] * y + this.matrix[5] * z;
+        double azimuth = Math.toDegrees(Math.atan2(east, north));
+        return azimuth < 0 ? azimuth + 360 : azimuth;
+    }
+
+    /**
+     * @return catalog indices of the stars above the horizon, only the first getVisibleCount() are in use
+     */
+    public int[] getVisibleStars() {
+        return this.visibleStars;
+    }
+
+    public int getVisibleCount() {
+        return this.visibleCount;
+    }
+
+    public double getVisibleX(int k) {
+        return this.visibleX.get(k);
+    }
+
+    public double getVisibleY(int k) {
+        return this.visibleY.get(k);
+    }
+
+    public double getAsterismStarX(int slot) {
+        return this.asterismStarX.get(slot);
+    }
+
+    public double getAsterismStarY(int slot) {
+        return this.asterismStarY.get(slot);
+    }
+
+    /**
+     * @return room for the cells of the sky index above the horizon, used while filling the frame
+     */
+    public int[] getVisibleCells() {
+        return this.visibleCells;
+    }
+
+    public double getLabelX(int asterism) {
+        return this.labelX[asterism];
+    }
+
+    public double getLabelY(int asterism) {
+        return this.labelY[asterism];
+    }
+
+    /**
+     * @return the time shown by the frame, in milliseconds since 1970
+     */
+    public double getTime() {
+        return this.time;
+    }
+
+    /**
+     * @return local sidereal time at the time shown by the frame, in radians
+     */
+    public double getSiderealAngle() {
+        return this.siderealAngle;
+    }
+
+    public ObserverTransform getTransform() {
+        return this.transform;
+    }
+
+    public Viewport getViewport() {
+        return this.viewport;
+    }
+
+    /**
+     * @return the rotation from equatorial into Alt-Az coordinates at the frame's time, see
+     * ObserverTransform.fillMatrix
+     */
+    public double[] getMatrix() {
+        return this.matrix;
+    }
+
+    public long getSequence() {
+        return this.sequence;
+    }
+}
@@ -0,0 +1,240 @@
+package cartoon;
+
+import java.util.Arrays;
+
+/**
+ * A spatial index over the celestial sphere, used to find the stars that are above the horizon without looking at
+ * every star in the catalog.
+ * <p>
+ * The sphere is cut into bands of declination, and each band is cut into cells of Right Ascension (fewer cells in the
+ * bands near the poles, so that every cell covers roughly the same area of sky). Stars are sorted by the cell they lie
+ * in, so the stars of a cell are next to each other. At any time, a cell's highest possible altitude can be worked
+ * out from its corners alone, so whole cells below the horizon are skipped without touching their stars.
+ * <p>
+ * Within a cell, stars are kept brightest first, and where each tier of Constants.LOD_MAGNITUDES ends in every cell
+ * is worked out once. Only the stars of a cell up to a limiting magnitude are then simply the first few of the cell,
+ * so a zoomed out view (see Viewport) leaves the fainter stars out without looking at them either.
+ */
+public class SkyIndex {
+    private final int[] cellStars; //star indices, grouped by cell
+    private final int[] cellStart; //the stars of cell i are cellStars[cellStart[i]] to cellStars[cellStart[i + 1] - 1]
+    private final int[] tierEnd; //the stars of cell i up to tier t end at cellStars[tierEnd[i * tiers + t]]
+    private final double[] cellMinDeclination;
+    private final double[] cellMaxDeclination;
+    private final double[] cellCenterRightAscension;
+    private final double[] cellHalfWidth; //half of the Right Ascension covered by the cell
+
+    /**
+     * Sorts every star of the catalog into its cell.
+     *
+     * @param catalog the catalog that is indexed
+     */
+    public SkyIndex(StarCatalog catalog) {
+        double bandHeight = Math.PI / Constants.INDEX_DECLINATION_BANDS;
+        int[] bandFirstCell = new int[Constants.INDEX_DECLINATION_BANDS + 1];
+        int[] bandCells = new int[Constants.INDEX_DECLINATION_BANDS];
+        for (int band = 0; band < Constants.INDEX_DECLINATION_BANDS; band++) {
+            double middle = -Math.PI / 2 + (band + 0.5) * bandHeight;
+            bandCells[band] = Math.max(1, (int) Math.round(2 * Constants.INDEX_DECLINATION_BANDS * Math.cos(middle)));
+            bandFirstCell[band + 1] = bandFirstCell[band] + bandCells[band];
+        }
+
+        int cellCount = bandFirstCell[Constants.INDEX_DECLINATION_BANDS];
+        this.cellMinDeclination = new double[cellCount];
+        this.cellMaxDeclination = new double[cellCount];
+        this.cellCenterRightAscension = new double[cellCount];
+        this.cellHalfWidth = new double[cellCount];
+        for (int band = 0; band < Constants.INDEX_DECLINATION_BANDS; band++) {
+            double width = 2 * Math.PI / bandCells[band];
+            for (int i = 0; i < bandCells[band]; i++) {
+                int cell = bandFirstCell[band] + i;
+                this.cellMinDeclination[cell] = -Math.PI / 2 + band * bandHeight;
+                this.cellMaxDeclination[cell] = this.cellMinDeclination[cell] + bandHeight;
+                this.cellCenterRightAscension[cell] = (i + 0.5) * width;
+                this.cellHalfWidth[cell] = width / 2;
+            }
+        }
+
+        //count the stars of every cell, then place every star after the stars of the cells before it
+        int starCount = catalog.getStarCount();
+        int[] starCell = new int[starCount];
+        this.cellStart = new int[cellCount + 1];
+        for (int i = 0; i < starCount; i++) {
+            int band = (int) ((catalog.getDeclination(i) + Math.PI / 2) / bandHeight);
+            band = Math.min(Math.max(band, 0), Constants.INDEX_DECLINATION_BANDS - 1);
+            double rightAscension = catalog.getRightAscension(i) % (2 * Math.PI);
+            if (rightAscension < 0) {
+                rightAscension += 2 * Math.PI;
+            }
+            int cellInBand = Math.min((int) (rightAscension / (2 * Math.PI) * bandCells[band]), bandCells[band] - 1);
+            starCell[i] = bandFirstCell[band] + cellInBand;
+            this.cellStart[starCell[i] + 1]++;
+        }
+        for (int cell = 0; cell < cellCount; cell++) {
+            this.cellStart[cell + 1] += this.cellStart[cell];
+        }
+        //stars are placed brightest first, so they stay brightest first within each cell
+        this.cellStars = new int[starCount];
+        int[] filled = new int[cellCount];
+        for (int i : byMagnitude(catalog)) {
+            this.cellStars[this.cellStart[starCell[i]] + filled[starCell[i]]++] = i;
+        }
+
+        int tiers = Constants.LOD_MAGNITUDES.length;
+        this.tierEnd = new int[cellCount * tiers];
+        for (int cell = 0; cell < cellCount; cell++) {
+            int end = this.cellStart[cell];
+            for (int t = 0; t < tiers; t++) {
+                while (end < this.cellStart[cell + 1]
+                        && catalog.getMagnitude(this.cellStars[end]) <= Constants.LOD_MAGNITUDES[t]) {
+                    end++;
+                }
+                this.tierEnd[cell * tiers + t] = end;
+            }
+        }
+    }
+
+    /**
+     * Helper method to sort the stars of the catalog by magnitude, brightest first. Each star is packed into a long
+     * with its magnitude (in thousandths, shifted so it is never negative) above its index, so sorting the longs
+     * sorts the stars without creating an object per star.
+     *
+     * @param catalog the catalog
+     * @return the index of every star, brightest first
+     */
+    private static int[] byMagnitude(StarCatalog catalog) {
+        long[] keys = new long[catalog.getStarCount()];
+        for (int i = 0; i < keys.length; i++) {
+            long magnitude = Math.max(0, Math.min(0xFFFFFFL, Math.round((catalog.getMagnitude(i) + 100) * 1000)));
+            keys[i] = magnitude << 32 | i;
+        }
+        Arrays.sort(keys);
+        int[] stars = new int[keys.length];
+        for (int i = 0; i < keys.length; i++) {
+            stars[i] = (int) keys[i];
+        }
+        return stars;
+    }
+
+    /**
+     * Writes every non-empty cell that reaches above the given altitude into visibleCells. Some stars of those cells
+     * may themselves be a little lower, but no star above the altitude is ever left out. The stars of the cells are
+     * then counted with countStars and copied out with copyStars, so the caller can make room for them in between.
+     *
+     * Only the direction of the zenith matters, so with the Earth's axis moving over time (see PrecessionNutation),
+     * the zenith's Right Ascension and Declination in the catalog's own coordinates are passed in.
+     *
+     * @param siderealAngle local sidereal time, in radians, or more exactly the zenith's Right Ascension
+     * @param latitude      latitude of the observer, in radians, or more exactly the zenith's Declination
+     * @param minAltitude   lowest altitude that counts as visible, in radians
+     * @param visibleCells  array to write the cells into, at least getCellCount() long
+     * @return the number of cells written
+     */
+    public int findVisibleCells(double siderealAngle, double latitude, double minAltitude, int[] visibleCells) {
+        double sinLatitude = Math.sin(latitude);
+        double cosLatitude = Math.cos(latitude);
+        double sinMinAltitude = Math.sin(minAltitude);
+        int count = 0;
+
+        for (int cell = 0; cell < this.cellHalfWidth.length; cell++) {
+            if (this.cellStart[cell] == this.cellStart[cell + 1]) {
+                continue;
+            }
+            //the cell is highest at the hour angle closest to the meridian
+            double hourAngle = Math.abs(Math.IEEEremainder(siderealAngle - this.cellCenterRightAscension[cell],
+                    2 * Math.PI));
+            double closestHourAngle = Math.max(0, hourAngle - this.cellHalfWidth[cell]);
+            if (maxSinAltitude(sinLatitude, cosLatitude * Math.cos(closestHourAngle),
+                    this.cellMinDeclination[cell], this.cellMaxDeclination[cell]) < sinMinAltitude) {
+                continue;
+            }
+            visibleCells[count++] = cell;
+        }
+        return count;
+    }
+
+    /**
+     * @param cells cells, as written by findVisibleCells
+     * @param count number of cells to use
+     * @return the number of stars in the cells
+     */
+    public int countStars(int[] cells, int count) {
+        return this.countStars(cells, count, Constants.LOD_MAGNITUDES.length - 1);
+    }
+
+    /**
+     * @param cells cells, as written by findVisibleCells
+     * @param count number of cells to use
+     * @param tier  the faintest tier of Constants.LOD_MAGNITUDES to count
+     * @return the number of stars in the cells up to the magnitude of the tier
+     */
+    public int countStars(int[] cells, int count, int tier) {
+        int tiers = Constants.LOD_MAGNITUDES.length;
+        int stars = 0;
+        for (int i = 0; i < count; i++) {
+            stars += this.tierEnd[cells[i] * tiers + tier] - this.cellStart[cells[i]];
+        }
+        return stars;
+    }
+
+    /**
+     * Writes the index of every star in the given cells into stars.
+     *
+     * @param cells cells, as written by findVisibleCells
+     * @param count number of cells to use
+     * @param stars array to write the star indices into, at least countStars(cells, count) long
+     * @return the number of star indices written
+     */
+    public int copyStars(int[] cells, int count, int[] stars) {
+        return this.copyStars(cells, count, Constants.LOD_MAGNITUDES.length - 1, stars);
+    }
+
+    /**
+     * Writes the index of every star in the given cells up to the magnitude of a tier into stars.
+     *
+     * @param cells cells, as written by findVisibleCells
+     * @param count number of cells to use
+     * @param tier  the faintest tier of Constants.LOD_MAGNITUDES to copy
+     * @param stars array to write the star indices into, at least countStars(cells, count, tier) long
+     * @return the number of star indices written
+     */
+    public int copyStars(int[] cells, int count, int tier, int[] stars) {
+        int tiers = Constants.LOD_MAGNITUDES.length;
+        int written = 0;
+        for (int i = 0; i < count; i++) {
+            int start = this.cellStart[cells[i]];
+            int length = this.tierEnd[cells[i] * tiers + tier] - start;
+            System.arraycopy(this.cellStars, start, stars, written, length);
+            written += length;
+        }
+        return written;
+    }
+
+    /**
+     * @return the number of cells the sky is cut into
+     */
+    public int getCellCount() {
+        return this.cellHalfWidth.length;
+    }
+
+    /**
+     * Helper method for the highest value of sin(altitude) = a sin(dec) + b cos(dec) over a band of declinations. The
+     * function is a single wave over the band, so its highest point is either one of the ends of the band, or its
+     * peak if the peak lies inside the band.
+     *
+     * @param a              sin of the latitude
+     * @param b              cos of the latitude times cos of the hour angle
+     * @param minDeclination lower edge of the band, in radians
+     * @param maxDeclination upper edge of the band, in radians
+     * @return the highest value of sin(altitude) in the band
+     */
+    private static double maxSinAltitude(double a, double b, double minDeclination, double maxDeclination) {
+        double highest = Math.max(a * Math.sin(minDeclination) + b * Math.cos(minDeclination),
+                a * Math.sin(maxDeclination) + b * Math.cos(maxDeclination));
+        double peak = Math.atan2(a, b);
+        if (peak > minDeclination && peak < maxDeclination) {
+            highest = Math.max(highest, Math.hypot(a, b));
+        }
+        return highest;
+    }
+}
@@ -0,0 +1,25 @@
+package cartoon;
+
+import javafx.scene.Node;
+
+/**
+ * Draws a NightSky. The NightSky only computes where every star, line and label is into a SkyFrame, a SkyRenderer
+ * decides how they end up on the screen, so the way the sky is drawn can be swapped while the program runs.
+ * Renderers are given the sky when they are created, for what never changes (the asterisms and the number of
+ * stars), and a frame every tick.
+ */
+public interface SkyRenderer {
+
+    /**
+     * @return the node everything is drawn into, which is added to the shape pane underneath all other elements
+     */
+    Node getNode();
+
+    /**
+     * Draws the sky at the positions in the frame. Called on the JavaFX Application Thread whenever the SkySimulator
+     * has finished a newer frame, at most once per screen frame. The frame is not changed while it is being drawn.
+     *
+     * @param frame the frame to draw
+     */
+    void render(SkyFrame frame);
+}
@@ -0,0 +1,160 @@
+package cartoon;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Computes the sky of one view off the JavaFX Application Thread, so that it only has to draw the results and stays
+ * free to handle input no matter how many stars there are. The work runs on the engine's pool, which every view
+ * shares, rather than on a thread of its own.
+ * <p>
+ * The JavaFX thread asks for a time with requestTime, and picks up the newest finished frame with latestFrame. Three
+ * frames are passed around without locks: the pool fills the back frame, the JavaFX thread draws the front frame,
+ * and the newest finished frame waits in between. Each hand-over is a single atomic swap, so a frame always belongs
+ * to exactly one thread, and the pool never writes into a frame being drawn. At most one task per simulator runs at
+ * a time, and it keeps going until it has caught up with the newest request.
+ */
+public class SkySimulator {
+    private final EphemerisEngine engine;
+    private final FrameMetrics metrics;
+    private volatile Observer observer;
+    private volatile Viewport viewport;
+    private final AtomicReference<SkyFrame> ready; //newest finished frame, waiting to be picked up
+    private final AtomicLong requestCount;
+    private final AtomicBoolean running; //whether a task is computing, only that task touches back and handled
+    private volatile double requestedTime;
+    private long handled; //the request the back frame was last computed for
+    private SkyFrame back;
+    private SkyFrame front; //only used by the JavaFX thread
+
+    /**
+     * Computes the first frame straight away, so there is something to draw before anything has been asked for.
+     *
+     * @param engine    the engine the sky is computed with, on its pool
+     * @param metrics   where the time and allocations of every step are recorded
+     * @param observer  where the sky is seen from
+     * @param startTime time of the first frame, in milliseconds since 1970
+     */
+    public SkySimulator(EphemerisEngine engine, FrameMetrics metrics, Observer observer, double startTime) {
+        this.engine = engine;
+        this.metrics = metrics;
+        this.observer = observer;
+        this.viewport = Viewport.WHOLE_SKY;
+        this.front = new SkyFrame(engine.getSky());
+        this.back = new SkyFrame(engine.getSky());
+        this.ready = new AtomicReference<>(new SkyFrame(engine.getSky()));
+        this.requestCount = new AtomicLong();
+        this.running = new AtomicBoolean();
+        this.requestedTime = startTime;
+        this.engine.computeFrame(startTime, this.observer, this.front);
+        this.front.setSequence(0);
+    }
+
+    /**
+     * Asks for the sky at the given time. If the last request is still being computed, the next computation skips
+     * straight to the newest time asked for.
+     *
+     * @param epochMillis the time, in milliseconds since 1970
+     */
+    public void requestTime(double epochMillis) {
+        this.requestedTime = epochMillis;
+        this.requestCount.incrementAndGet();
+        this.schedule();
+    }
+
+    /**
+     * Moves the observer to another place. The sky is computed again at the last time asked for, so the new place
+     * shows up even while paused.
+     *
+     * @param observer where the sky is seen from
+     */
+    public void setObserver(Observer observer) {
+        this.observer = observer;
+        this.requestCount.incrementAndGet();
+        this.schedule();
+    }
+
+    public Observer getObserver() {
+        return this.observer;
+    }
+
+    /**
+     * Zooms or pans the view. Like setObserver, the sky is computed again at the last time asked for.
+     *
+     * @param viewport the part of the dome shown
+     */
+    public void setViewport(Viewport viewport) {
+        this.viewport = viewport;
+        this.requestCount.incrementAndGet();
+        this.schedule();
+    }
+
+    /**
+     * Swaps in the newest finished frame, if there is one newer than the frame last returned.
+     *
+     * @return the newest frame, which stays untouched by the pool until this is called again
+     */
+    public SkyFrame latestFrame() {
+        if (this.ready.get().getSequence() > this.front.getSequence()) {
+            this.front = this.ready.getAndSet(this.front);
+        }
+        return this.front;
+    }
+
+    /**
+     * @return the frame last returned by latestFrame, without picking up a newer one, so it is the frame on the screen
+     */
+    public SkyFrame currentFrame() {
+        return this.front;
+    }
+
+    /**
+     * Helper method to start a task on the pool, unless one is already running (which then picks up the request).
+     */
+    private void schedule() {
+        if (this.running.compareAndSet(false, true)) {
+            this.engine.getPool().execute(this::run);
+        }
+    }
+
+    /**
+     * Computes the newest request into the back frame and swaps it in as the newest finished frame, until there are
+     * no newer requests. The frame it gets back in exchange is the next back frame. A request that comes in just as
+     * the task stops is picked up by checking once more after letting go of running.
+     */
+    private void run() {
+        do {
+            long requested;
+            while ((requested = this.requestCount.get()) != this.handled) {
+                this.handled = requested;
+                this.step();
+                this.back.setSequence(requested);
+                this.back = this.ready.getAndSet(this.back);
+            }
+            this.running.set(false);
+        } while (this.requestCount.get() != this.handled && this.running.compareAndSet(false, true));
+    }
+
+    /**
+     * Helper method to compute the newest request into the back frame, recording how long it took and how much the
+     * pool thread allocated doing it. Stars moved by other threads of the pool, when the frame is split up, are not
+     * counted in the allocations.
+     */
+    private void step() {
+        SimulationStepEvent event = new SimulationStepEvent();
+        event.begin();
+        long bytes = FrameMetrics.allocatedBytes();
+        long start = System.nanoTime();
+        this.engine.computeFrame(this.requestedTime, this.observer, this.viewport, this.back);
+        long nanos = System.nanoTime() - start;
+        bytes = FrameMetrics.allocatedBytes() - bytes;
+        this.metrics.recordStep(nanos, bytes);
+        event.end();
+        if (event.shouldCommit()) {
+            event.visibleStars = this.back.getVisibleCount();
+            event.allocatedBytes = bytes;
+            event.commit();
+        }
+    }
+}
@@ -0,0 +1,587 @@
+package cartoon;
+
+import javafx.animation.PauseTransition;
+import javafx.event.ActionEvent;
+import javafx.scene.CacheHint;
+import javafx.scene.Node;
+import javafx.scene.control.Label;
+import javafx.scene.input.MouseEvent;
+import javafx.scene.input.ScrollEvent;
+import javafx.scene.layout.Pane;
+import javafx.scene.paint.Color;
+import javafx.scene.shape.ArcTo;
+import javafx.scene.shape.ClosePath;
+import javafx.scene.shape.Ellipse;
+import javafx.scene.shape.FillRule;
+import javafx.scene.shape.LineTo;
+import javafx.scene.shape.MoveTo;
+import javafx.scene.shape.Path;
+import javafx.scene.shape.Rectangle;
+import javafx.scene.text.Text;
+import javafx.util.Duration;
+
+/**
+ * One view of the sky: a pane with its own time, speed, observing site and way of drawing, showing the sky, the
+ * ground, the cardinal directions and the time. Every view is given the same NightSky and EphemerisEngine, so any
+ * number of views share one catalog in memory and one pool to compute on, and each view only holds the stars above
+ * its own horizon (in its frames and its star nodes).
+ * <p>
+ * Cartoon advances and draws every view in the same frame, in two steps: first all views ask for their next sky, so
+ * they are computed side by side on the pool, then all views draw the newest sky they have.
+ * <p>
+ * Pointing at a star or the name of an asterism shows what it is and where it is (its altitude and azimuth, and its
+ * magnitude), next to the mouse. Clicking on one keeps it shown in the bottom left corner, following it as the sky
+ * turns, until something else (or nothing) is clicked. The star under the mouse is found through the ScreenGrid of
+ * the frame on the screen, rather than by JavaFX picking between the star nodes.
+ * <p>
+ * The mouse wheel zooms in and out around the mouse, and dragging pans the sky (see Viewport). A new viewport is
+ * handed to the simulator like a new observer. Until a frame computed for it comes back, the frame on the screen is
+ * moved into the new viewport (see SkyFrame.reproject), and the ground, the directions and the zenith are moved
+ * along with it, so they always match the sky underneath them.
+ * <p>
+ * The view takes whatever size Cartoon gives it, and everything in it follows from that size. Resizing the window
+ * sends a burst of new sizes, so while that goes on the frame on the screen is only moved and scaled to each new
+ * size, which takes no trig at all, and the simulator is only asked for a new frame once the size has stayed the
+ * same for Constants.RESIZE_DEBOUNCE_MILLIS.
+ */
+public class SkyView {
+    private final Pane shapePane;
+    private final SkySimulator simulator;
+    private final SkyRenderer[] renderers;
+    private SkyRenderer renderer;
+    private int rendererIndex;
+    private boolean paused;
+    private long renderedSequence; //sequence of the frame last drawn
+    private Label timeLabel;
+    private Label siteLabel;
+    private int siteIndex;
+    private SkyClock clock;
+    private TimeLabelFormatter timeFormatter;
+    private int multiplierIndex;
+    private final NightSky sky;
+    private Label hoverLabel;
+    private Label pinnedLabel;
+    private double mouseX; //where the mouse is in the pane, NaN while it is outside
+    private double mouseY;
+    private int pinnedStar; //catalog index of the star clicked on, or -1
+    private int pinnedAsterism; //index of the asterism clicked on, or -1
+    private double dragX; //where the mouse was when the sky was last panned
+    private double dragY;
+    private Viewport viewport; //the part of the dome on the screen, frames computed for others are moved into it
+    private Viewport placedViewport; //viewport the ground, directions and zenith were last placed for
+    private final Rectangle clip;
+    private final PauseTransition resizeDelay; //restarted by every new size, asks for a new frame once it runs out
+    private Path ground;
+    private Text[] directions; //north, south, east and west
+    private Ellipse zenith;
+    private Text zenithLabel;
+
+    /**
+     * Creates the pane of the view, the simulator that computes its sky, and its renderers, and sets the initial
+     * speed. Graphically adds All asterisms, the ground, the directions and the labels.
+     *
+     * @param engine    the engine the sky is computed with, shared by every view
+     * @param metrics   where the steps of the view's simulator are recorded, shared by every view
+     * @param siteIndex index of the observing site in Constants the view starts at
+     */
+    public SkyView(EphemerisEngine engine, FrameMetrics metrics, int siteIndex) {
+        NightSky sky = engine.getSky();
+        this.sky = sky;
+        this.shapePane = new Pane();
+        this.shapePane.setPrefSize(Constants.APP_WIDTH, Constants.CARTOON_PANE_HEIGHT);
+        this.shapePane.setStyle("-fx-background-color: black");
+        //the ground reaches past the edges, so it is cut off at the pane's edges rather than covering other views
+        this.clip = new Rectangle(Constants.APP_WIDTH, Constants.CARTOON_PANE_HEIGHT);
+        this.shapePane.setClip(this.clip);
+        this.viewport = Viewport.WHOLE_SKY;
+        this.siteIndex = siteIndex;
+        this.simulator = new SkySimulator(engine, metrics, site(this.siteIndex), Constants.EPOCH_MILLIS);
+        this.resizeDelay = new PauseTransition(Duration.millis(Constants.RESIZE_DEBOUNCE_MILLIS));
+        this.resizeDelay.setOnFinished((ActionEvent e) -> this.simulator.setViewport(this.viewport));
+        this.renderers = Constants.GROUP_RENDERER
+                ? new SkyRenderer[]{new NodeRenderer(sky), new CanvasRenderer(sky), new GroupRenderer(sky)}
+                : new SkyRenderer[]{new NodeRenderer(sky), new CanvasRenderer(sky)};
+        this.rendererIndex = Constants.INITIAL_RENDERER_INDEX;
+        this.multiplierIndex = Constants.INITIAL_MULTIPLIER_INDEX;
+
+        this.addNightSky();
+        this.addTimeLabel();
+        this.addInfoLabels();
+        this.addZoomHandlers();
+        this.placeOverlay(this.viewport);
+    }
+
+    public Pane getPane() {
+        return this.shapePane;
+    }
+
+    /**
+     * Outlines the view while it is the one key presses go to. With only one view there is nothing to tell apart,
+     * so Cartoon never outlines it.
+     *
+     * @param selected whether the view is selected
+     */
+    public void setSelected(boolean selected) {
+        if (selected) {
+            this.shapePane.setStyle("-fx-background-color: black; -fx-border-color: gold; -fx-border-width: 2");
+        } else {
+            this.shapePane.setStyle("-fx-background-color: black");
+        }
+    }
+
+    /**
+     * Adds all graphical elements of the program.
+     */
+    private void addNightSky() {
+        this.addAsterisms();
+        this.addCardinalDirections();
+        this.addZenithLabel();
+        this.addGround();
+    }
+
+    /**
+     * Adds the node of the renderer chosen in Constants, which draws all of the asterisms. It is added first so that
+     * every other element lies on top of it.
+     */
+    private void addAsterisms() {
+        this.renderer = this.renderers[this.rendererIndex];
+        SkyFrame frame = this.simulator.latestFrame();
+        this.renderer.render(frame);
+        this.renderedSequence = frame.getSequence();
+        this.shapePane.getChildren().add(this.renderer.getNode());
+    }
+
+    /**
+     * Moves on to the next way of drawing the sky: with one node per element, onto a single canvas, or (if
+     * Constants.GROUP_RENDERER is turned on) with nodes in a single rotated group. The new renderer's node takes the
+     * place of the old one so it stays underneath every other element.
+     */
+    public void switchRenderer() {
+        this.rendererIndex = (this.rendererIndex + 1) % this.renderers.length;
+        SkyRenderer newRenderer = this.renderers[this.rendererIndex];
+        int index = this.shapePane.getChildren().indexOf(this.renderer.getNode());
+        SkyFrame frame = this.simulator.latestFrame();
+        if (frame.getViewport() != this.viewport) {
+            frame.reproject(this.viewport);
+        }
+        newRenderer.render(frame);
+        this.renderedSequence = frame.getSequence();
+        this.shapePane.getChildren().set(index, newRenderer.getNode());
+        this.renderer = newRenderer;
+    }
+
+    /**
+     * Adds a dot and label to where the Zenith (Point directly overhead) should be. They are placed by placeOverlay.
+     */
+    private void addZenithLabel() {
+        this.zenith = new Ellipse(0, 0, 2, 2);
+        this.zenith.setFill(Color.RED);
+        this.zenithLabel = new Text("Zenith");
+        this.zenithLabel.setFill(Color.SKYBLUE);
+
+        this.cacheStaticNode(this.zenith);
+        this.cacheStaticNode(this.zenithLabel);
+        this.shapePane.getChildren().add(this.zenith);
+        this.shapePane.getChildren().add(this.zenithLabel);
+    }
+
+    /**
+     * Adds the four cardinal directions to the app. According to our definitions, North is at the bottom of the screen.
+     * They are placed by placeOverlay.
+     */
+    private void addCardinalDirections() {
+        this.directions = new Text[]{new Text("N"), new Text("S"), new Text("E"), new Text("W")};
+        for (Text direction : this.directions) {
+            direction.setFill(Color.RED);
+            this.cacheStaticNode(direction);
+            this.shapePane.getChildren().add(direction);
+        }
+    }
+
+    /**
+     * Adds the ground, which covers the view except for a black circle in the middle (the night sky, a circle when
+     * projected onto our FOV). It is placed by placeOverlay.
+     * <p>
+     * The ground is a single path of the outline of the view and the horizon, filled where only one of them encloses
+     * it, rather than a rectangle with the circle subtracted from it, so it can be made again for a new size or zoom
+     * just by giving the path new points, without working out the shape of the cutout.
+     */
+    private void addGround() {
+        this.ground = new Path();
+        this.ground.setFillRule(FillRule.EVEN_ODD);
+        this.ground.setFill(Color.DARKSLATEGRAY);
+        this.ground.setStroke(null);
+        this.cacheStaticNode(this.ground);
+
+        this.shapePane.getChildren().add(this.ground);
+    }
+
+    /**
+     * Helper method to move the ground, the directions and the zenith to where they are in the given viewport. The
+     * directions are moved rather than scaled, so the letters keep their size.
+     *
+     * @param viewport the part of the dome shown
+     */
+    private void placeOverlay(Viewport viewport) {
+        this.placedViewport = viewport;
+        double horizon = viewport.getHorizonRadius();
+        double zenithX = viewport.getZenithX();
+        double zenithY = viewport.getZenithY();
+        double width = viewport.getWidth();
+        double height = viewport.getHeight();
+        //the horizon may reach past the view, where the ground is then filled as well, but cut off by the clip
+        this.ground.getElements().setAll(new MoveTo(0, 0), new LineTo(width, 0), new LineTo(width, height),
+                new LineTo(0, height), new ClosePath(), new MoveTo(zenithX - horizon, zenithY),
+                new ArcTo(horizon, horizon, 0, zenithX + horizon, zenithY, false, true),
+                new ArcTo(horizon, horizon, 0, zenithX - horizon, zenithY, false, true), new ClosePath());
+
+        this.directions[0].setX(zenithX);
+        this.directions[0].setY(zenithY + horizon);
+        this.directions[1].setX(zenithX);
+        this.directions[1].setY(zenithY - horizon + 10);
+        this.directions[2].setX(zenithX + horizon - 10);
+        this.directions[2].setY(zenithY);
+        this.directions[3].setX(zenithX - horizon);
+        this.directions[3].setY(zenithY);
+
+        this.zenith.setCenterX(zenithX);
+        this.zenith.setCenterY(zenithY);
+        this.zenithLabel.setX(zenithX + 3);
+        this.zenithLabel.setY(zenithY + 13);
+    }
+
+    /**
+     * Elements that never move are cached as bitmaps, so they do not have to be drawn again every time the sky
+     * underneath them changes.
+     *
+     * @param node the element to cache
+     */
+    private void cacheStaticNode(Node node) {
+        node.setCache(true);
+        node.setCacheHint(CacheHint.QUALITY);
+    }
+
+    /**
+     * Adds the dynamic label that changes with time. The text is updated using a SkyClock and TimeLabelFormatter to
+     * keep track of time passing.
+     * Because the constellations drift a little every day (the orbit of the Earth) and every year (the precession
+     * of its axis, see PrecessionNutation), we need very precise measurements of the time.
+     * The formatter shows the day, month, year, and time.
+     */
+    private void addTimeLabel() {
+
+        this.clock = new SkyClock(Constants.EPOCH_MILLIS);
+        this.timeFormatter = new TimeLabelFormatter();
+        this.timeLabel = new Label(this.timeFormatter.format(this.clock.getTimeSeconds()));
+        this.timeLabel.setTextFill(Color.WHITE);
+        this.timeLabel.setStyle("-fx-font-size: 18");
+
+        this.shapePane.getChildren().add(this.timeLabel);
+
+        this.siteLabel = new Label(Constants.SITE_NAMES[this.siteIndex]);
+        this.siteLabel.setTextFill(Color.WHITE);
+        this.siteLabel.setStyle("-fx-font-size: 14");
+        this.siteLabel.setLayoutY(26);
+        this.shapePane.getChildren().add(this.siteLabel);
+    }
+
+    /**
+     * Adds the labels that describe the star or asterism under the mouse and the one clicked on, both hidden until
+     * there is something to show, and sets up the mouse handlers. The labels let the mouse through, so they never
+     * hide what is under them.
+     */
+    private void addInfoLabels() {
+        this.hoverLabel = new Label();
+        this.pinnedLabel = new Label();
+        for (Label label : new Label[]{this.hoverLabel, this.pinnedLabel}) {
+            label.setTextFill(Color.WHITE);
+            label.setStyle("-fx-font-size: 11; -fx-background-color: rgba(0, 0, 0, 0.7); -fx-padding: 3");
+            label.setMouseTransparent(true);
+            label.setVisible(false);
+            this.shapePane.getChildren().add(label);
+        }
+        this.pinnedLabel.setLayoutX(4);
+        this.pinnedLabel.setLayoutY(Constants.CARTOON_PANE_HEIGHT - 60);
+        this.mouseX = Double.NaN;
+        this.mouseY = Double.NaN;
+        this.pinnedStar = -1;
+        this.pinnedAsterism = -1;
+
+        this.shapePane.setOnMouseMoved((MouseEvent e) -> {
+            this.mouseX = e.getX();
+            this.mouseY = e.getY();
+            this.updateInfo();
+        });
+        this.shapePane.setOnMouseExited((MouseEvent e) -> {
+            this.mouseX = Double.NaN;
+            this.mouseY = Double.NaN;
+            this.updateInfo();
+        });
+        //a click that ends a drag only panned the sky
+        this.shapePane.setOnMouseClicked((MouseEvent e) -> {
+            if (e.isStillSincePress()) {
+                this.pick(e.getX(), e.getY());
+            }
+        });
+    }
+
+    /**
+     * Sets up zooming with the mouse wheel, around the mouse, and panning by dragging.
+     */
+    private void addZoomHandlers() {
+        this.shapePane.setOnScroll((ScrollEvent e) -> {
+            if (e.getDeltaY() != 0) {
+                double factor = Math.pow(Constants.ZOOM_STEP, Math.signum(e.getDeltaY()));
+                this.showViewport(this.viewport.zoomedAt(factor, e.getX(), e.getY()));
+            }
+        });
+        this.shapePane.setOnMousePressed((MouseEvent e) -> {
+            this.dragX = e.getX();
+            this.dragY = e.getY();
+        });
+        this.shapePane.setOnMouseDragged((MouseEvent e) -> {
+            Viewport viewport = this.viewport.pannedBy(e.getX() - this.dragX, e.getY() - this.dragY);
+            this.dragX = e.getX();
+            this.dragY = e.getY();
+            this.showViewport(viewport);
+        });
+    }
+
+    /**
+     * Helper method to zoom or pan the view: the frame on the screen is moved into the new viewport when the view is
+     * next drawn, and the simulator computes the sky for it.
+     *
+     * @param viewport the part of the dome to show
+     */
+    private void showViewport(Viewport viewport) {
+        this.viewport = viewport;
+        this.simulator.setViewport(viewport);
+    }
+
+    /**
+     * Zooms the view all the way out, to the whole dome.
+     */
+    public void resetZoom() {
+        this.showViewport(Viewport.wholeSky(this.viewport.getWidth(), this.viewport.getHeight()));
+    }
+
+    /**
+     * Gives the view a new size. The frame on the screen is moved and scaled to it when the view is next drawn, but
+     * the simulator is only asked for a new frame once no new size has come for Constants.RESIZE_DEBOUNCE_MILLIS, so
+     * dragging the edge of the window does not compute the sky again for every size it passes through.
+     *
+     * @param width  the new width of the view
+     * @param height the new height of the view
+     */
+    public void setSize(double width, double height) {
+        if (width == this.viewport.getWidth() && height == this.viewport.getHeight()) {
+            return;
+        }
+        this.shapePane.setPrefSize(width, height);
+        this.clip.setWidth(width);
+        this.clip.setHeight(height);
+        this.pinnedLabel.setLayoutY(height - 60);
+        this.viewport = this.viewport.resized(width, height);
+        this.resizeDelay.playFromStart();
+    }
+
+    /**
+     * Keeps whatever is at the given point shown until something else is clicked, or stops showing anything if
+     * nothing is there.
+     *
+     * @param x x position of the point in the pane
+     * @param y y position of the point in the pane
+     */
+    private void pick(double x, double y) {
+        SkyFrame frame = this.simulator.currentFrame();
+        int k = frame.findStar(x, y, Constants.PICK_DISTANCE);
+        this.pinnedStar = k >= 0 ? frame.getVisibleStars()[k] : -1;
+        this.pinnedAsterism = k >= 0 ? -1 : frame.findLabel(x, y);
+        this.updateInfo();
+    }
+
+    /**
+     * Helper method to describe, for the frame on the screen, whatever is under the mouse next to it, and whatever was
+     * clicked on in the corner. Called whenever the mouse moves and whenever a new frame is drawn, since the sky
+     * moves under the mouse as well.
+     */
+    private void updateInfo() {
+        SkyFrame frame = this.simulator.currentFrame();
+        String hover = null;
+        if (!Double.isNaN(this.mouseX)) {
+            int k = frame.findStar(this.mouseX, this.mouseY, Constants.PICK_DISTANCE);
+            if (k >= 0) {
+                hover = this.describeStar(frame, frame.getVisibleStars()[k]);
+            } else {
+                int asterism = frame.findLabel(this.mouseX, this.mouseY);
+                hover = asterism >= 0 ? this.describeAsterism(frame, asterism) : null;
+            }
+        }
+        if (hover != null) {
+            this.hoverLabel.setText(hover);
+            //kept on the left of the mouse near the right edge, and above it near the bottom, so it stays in the pane
+            double width = this.viewport.getWidth();
+            double height = this.viewport.getHeight();
+            this.hoverLabel.setLayoutX(this.mouseX < width - 180 ? this.mouseX + 12 : this.mouseX - 180);
+            this.hoverLabel.setLayoutY(this.mouseY < height - 70 ? this.mouseY + 12
+                    : this.mouseY - 70);
+        }
+        this.hoverLabel.setVisible(hover != null);
+
+        String pinned = null;
+        if (this.pinnedStar >= 0) {
+            pinned = this.describeStar(frame, this.pinnedStar);
+        } else if (this.pinnedAsterism >= 0) {
+            pinned = this.describeAsterism(frame, this.pinnedAsterism);
+        }
+        if (pinned != null && !pinned.equals(this.pinnedLabel.getText())) {
+            this.pinnedLabel.setText(pinned);
+        }
+        this.pinnedLabel.setVisible(pinned != null);
+    }
+
+    /**
+     * Helper method to describe a star: its HR number, magnitude, altitude and azimuth, and the asterisms it is in.
+     *
+     * @param frame the frame the star is seen in
+     * @param star  catalog index of the star
+     * @return the description
+     */
+    private String describeStar(SkyFrame frame, int star) {
+        StarBuffer stars = this.sky.getStars();
+        double x = stars.getEquatorialX(star);
+        double y = stars.getEquatorialY(star);
+        double z = stars.getEquatorialZ(star);
+        int hr = this.sky.getCatalog().getHRNumber(star);
+        StringBuilder text = new StringBuilder(hr > 0 ? "HR " + hr : "Star " + star);
+        text.append(String.format("%nmagnitude %.2f%naltitude %.1f\u00b0, azimuth %.1f\u00b0", stars.getMagnitude(star),
+                frame.getAltitude(x, y, z), frame.getAzimuth(x, y, z)));
+        for (Asterism asterism : this.sky.getAsterisms()) {
+            for (int member : asterism.getStars()) {
+                if (member == star) {
+                    text.append(System.lineSeparator()).append("in ").append(asterism.getName());
+                    break;
+                }
+            }
+        }
+        return text.toString();
+    }
+
+    /**
+     * Helper method to describe an asterism: its name, the altitude and azimuth of its center, and its number of
+     * stars and the magnitude of the brightest.
+     *
+     * @param frame    the frame the asterism is seen in
+     * @param asterism index of the asterism
+     * @return the description
+     */
+    private String describeAsterism(SkyFrame frame, int asterism) {
+        double x = this.sky.getCenterX()[asterism];
+        double y = this.sky.getCenterY()[asterism];
+        double z = this.sky.getCenterZ()[asterism];
+        int[] members = this.sky.getAsterisms()[asterism].getStars();
+        double brightest = Double.POSITIVE_INFINITY;
+        for (int member : members) {
+            brightest = Math.min(brightest, this.sky.getStars().getMagnitude(member));
+        }
+        return String.format("%s%naltitude %.1f\u00b0, azimuth %.1f\u00b0 (center)%n%d stars, brightest magnitude %.2f",
+                this.sky.getAsterisms()[asterism].getName(), frame.getAltitude(x, y, z), frame.getAzimuth(x, y, z),
+                members.length, brightest);
+    }
+
+    /**
+     * Moves the observer on to the next observing site in Constants. Everything that depends on the site is worked
+     * out once per site and cached (see ObserverTransform), so the sky simply shows up from the new site on the next
+     * frame.
+     */
+    public void switchSite() {
+        this.siteIndex = (this.siteIndex + 1) % Constants.SITE_NAMES.length;
+        this.simulator.setObserver(site(this.siteIndex));
+        this.siteLabel.setText(Constants.SITE_NAMES[this.siteIndex]);
+    }
+
+    /**
+     * Helper method to create the observer for one of the observing sites in Constants.
+     *
+     * @param index index of the site
+     * @return the observer
+     */
+    private static Observer site(int index) {
+        return new Observer(Constants.SITE_LATITUDES[index], Constants.SITE_LONGITUDES[index]);
+    }
+
+    /**
+     * Unless paused, moves the clock forward by the sky time that corresponds to the given real time at the current
+     * speed, and asks the simulator for the sky at the new time. Since the clock follows the real time that passed,
+     * the sky moves at the same speed no matter how often frames come, and a late frame simply moves it further.
+     *
+     * @param elapsedNanos real time since the last frame, in nanoseconds
+     */
+    public void advance(long elapsedNanos) {
+        if (!this.paused) {
+            this.clock.advance(elapsedNanos, Constants.MULTIPLIERS[this.multiplierIndex]);
+            this.simulator.requestTime(this.clock.getTime());
+        }
+    }
+
+    /**
+     * Draws the newest frame the simulator has finished. If the simulator falls behind, it skips straight to the
+     * newest time asked for, and frames it has not finished anything new for are not drawn again, unless the view has
+     * been zoomed, panned or resized since. A frame computed for another viewport than the one on the screen is moved
+     * into it first.
+     * <p>
+     * Whatever is under the mouse or was clicked on is described again for the new frame, since it has moved. If the
+     * frame is for a new viewport, the ground, the directions and the zenith are moved to match it.
+     * <p>
+     * Then the time of the frame is truncated to a definite time in seconds to display, so the label always matches
+     * the sky on the screen. The label is only given new text when the displayed second changes.
+     */
+    public void render() {
+        SkyFrame frame = this.simulator.latestFrame();
+        boolean moved = frame.getViewport() != this.viewport;
+        if (frame.getSequence() == this.renderedSequence && !moved) {
+            return;
+        }
+        if (moved) {
+            frame.reproject(this.viewport);
+        }
+        this.renderer.render(frame);
+        this.renderedSequence = frame.getSequence();
+        if (frame.getViewport() != this.placedViewport) {
+            this.placeOverlay(frame.getViewport());
+        }
+        this.updateInfo();
+        String time = this.timeFormatter.format((long) Math.floor(frame.getTime() / 1000));
+        if (!time.equals(this.timeLabel.getText())) {
+            this.timeLabel.setText(time);
+        }
+    }
+
+    /**
+     * Speeds up forwards in time, or slows down backwards in time, by moving on to the next multiplier. The speed is
+     * not changed while paused.
+     */
+    public void speedUp() {
+        if (!this.paused && this.multiplierIndex < Constants.MULTIPLIERS.length - 1) {
+            this.multiplierIndex++;
+        }
+    }
+
+    /**
+     * Speeds up backwards in time, or slows down forwards in time, by moving on to the previous multiplier. The speed
+     * is not changed while paused.
+     */
+    public void slowDown() {
+        if (!this.paused && this.multiplierIndex > 0) {
+            this.multiplierIndex--;
+        }
+    }
+
+    /**
+     * Pauses or starts the clock. The view is still drawn while paused, so other changes (such as the observing
+     * site) still show up, but the time spent paused is not counted once it starts again.
+     */
+    public void togglePause() {
+        this.paused = !this.paused;
+    }
+}
@@ -0,0 +1,84 @@
+package cartoon;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.FloatBuffer;
+
+/**
+ * Working storage for every star of the sky, kept outside of the Java heap. A catalog of several million stars would
+ * otherwise put tens of megabytes of arrays on the heap for the garbage collector to look after, while direct
+ * buffers cost the heap nothing no matter how many stars there are.
+ * <p>
+ * Each value is kept in its own buffer (one buffer of x values, one of y values, and so on), so the loops in NightSky
+ * that move every star read straight through memory. Nothing in here changes after construction, so any number of
+ * threads can read it at once; the screen positions computed from it go into a SkyFrame.
+ */
+public class StarBuffer {
+    private final int size;
+
+    /**
+     * Direction of every star in equatorial coordinates, as a unit vector, and its magnitude. These never change.
+     */
+    private final DoubleBuffer equatorialX;
+    private final DoubleBuffer equatorialY;
+    private final DoubleBuffer equatorialZ;
+    private final FloatBuffer magnitude;
+
+    /**
+     * Fills the buffer with the direction and magnitude of every star in the catalog.
+     *
+     * @param catalog the catalog the stars are read from
+     */
+    public StarBuffer(StarCatalog catalog) {
+        this.size = catalog.getStarCount();
+        this.equatorialX = allocateDoubles(this.size);
+        this.equatorialY = allocateDoubles(this.size);
+        this.equatorialZ = allocateDoubles(this.size);
+        this.magnitude = ByteBuffer.allocateDirect(this.size * Float.BYTES).order(ByteOrder.nativeOrder())
+                .asFloatBuffer();
+
+        for (int i = 0; i < this.size; i++) {
+            double rightAscension = catalog.getRightAscension(i);
+            double declination = catalog.getDeclination(i);
+            this.equatorialX.put(i, Math.cos(declination) * Math.cos(rightAscension));
+            this.equatorialY.put(i, Math.cos(declination) * Math.sin(rightAscension));
+            this.equatorialZ.put(i, Math.sin(declination));
+            this.magnitude.put(i, (float) catalog.getMagnitude(i));
+        }
+    }
+
+    /**
+     * Helper method to allocate an off-heap buffer of doubles.
+     *
+     * @param count number of doubles
+     * @return the buffer
+     */
+    private static DoubleBuffer allocateDoubles(int count) {
+        return ByteBuffer.allocateDirect(count * Double.BYTES).order(ByteOrder.nativeOrder()).asDoubleBuffer();
+    }
+
+    /**
+     * Getters. Index is the star's index in the catalog.
+     */
+
+    public int size() {
+        return this.size;
+    }
+
+    public double getEquatorialX(int index) {
+        return this.equatorialX.get(index);
+    }
+
+    public double getEquatorialY(int index) {
+        return this.equatorialY.get(index);
+    }
+
+    public double getEquatorialZ(int index) {
+        return this.equatorialZ.get(index);
+    }
+
+    public double getMagnitude(int index) {
+        return this.magnitude.get(index);
+    }
+}
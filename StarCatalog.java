@@ -0,0 +1,108 @@
+package cartoon;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A catalog of stars read from the compact binary file written by CatalogImporter. The file is memory-mapped rather
+ * than read, so opening even a catalog of hundreds of thousands of stars takes no parsing at all: each star is read
+ * straight out of the mapped file when it is asked for.
+ * <p>
+ * File layout (big-endian):
+ * - header: magic number, format version, number of stars, number of asterisms (4 ints)
+ * - one 16 byte record per star: right ascension and declination in radians, magnitude (3 floats), HR number (int)
+ * - per asterism: name (unsigned short length, then UTF-8 bytes), number of lines (int), then two star indices per
+ * line (ints), indexing the star records above
+ */
+public class StarCatalog {
+    public static final int MAGIC = 0x53544152; //"STAR"
+    public static final int VERSION = 1;
+    public static final int HEADER_BYTES = 16;
+    public static final int STAR_RECORD_BYTES = 16;
+
+    private final ByteBuffer stars;
+    private final int starCount;
+    private final String[] asterismNames;
+    private final int[][] asterismEdges;
+
+    /**
+     * Maps the catalog file and reads the (small) asterism section. The star records are left in the file.
+     *
+     * @param file the binary catalog file
+     */
+    public StarCatalog(Path file) {
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not open star catalog " + file, e);
+        }
+
+        if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+            throw new IllegalStateException(file + " is not a star catalog of version " + VERSION);
+        }
+        this.starCount = buffer.getInt(8);
+        int asterismCount = buffer.getInt(12);
+        this.stars = buffer.slice(HEADER_BYTES, this.starCount * STAR_RECORD_BYTES);
+
+        this.asterismNames = new String[asterismCount];
+        this.asterismEdges = new int[asterismCount][];
+        buffer.position(HEADER_BYTES + this.starCount * STAR_RECORD_BYTES);
+        for (int i = 0; i < asterismCount; i++) {
+            byte[] name = new byte[Short.toUnsignedInt(buffer.getShort())];
+            buffer.get(name);
+            this.asterismNames[i] = new String(name, StandardCharsets.UTF_8);
+            this.asterismEdges[i] = new int[2 * buffer.getInt()];
+            for (int j = 0; j < this.asterismEdges[i].length; j++) {
+                this.asterismEdges[i][j] = buffer.getInt();
+            }
+        }
+    }
+
+    /**
+     * Getters for a single star. Index is the star's position in the catalog.
+     */
+
+    public int getStarCount() {
+        return this.starCount;
+    }
+
+    public double getRightAscension(int index) {
+        return this.stars.getFloat(index * STAR_RECORD_BYTES);
+    }
+
+    public double getDeclination(int index) {
+        return this.stars.getFloat(index * STAR_RECORD_BYTES + 4);
+    }
+
+    public double getMagnitude(int index) {
+        return this.stars.getFloat(index * STAR_RECORD_BYTES + 8);
+    }
+
+    public int getHRNumber(int index) {
+        return this.stars.getInt(index * STAR_RECORD_BYTES + 12);
+    }
+
+    /**
+     * Getters for the asterisms. Edges are pairs of star indices, line i goes from star edges[2i] to star
+     * edges[2i + 1].
+     */
+
+    public int getAsterismCount() {
+        return this.asterismNames.length;
+    }
+
+    public String getAsterismName(int asterism) {
+        return this.asterismNames[asterism];
+    }
+
+    public int[] getAsterismEdges(int asterism) {
+        return this.asterismEdges[asterism];
+    }
+}
@@ -0,0 +1,62 @@
+package cartoon;
+
+import javafx.scene.Group;
+import javafx.scene.paint.Color;
+import javafx.scene.shape.Ellipse;
+
+import java.util.Arrays;
+
+/**
+ * The star nodes of the NodeRenderer and GroupRenderer. Rather than one Ellipse for every star in the catalog, there
+ * is one for every star above the horizon: the k-th node shows the k-th visible star of the frame. Nodes are only
+ * created when more stars are visible than ever before, and the ones left over are hidden, so a view only holds as
+ * many nodes as there are stars in its sky, however large the catalog is.
+ */
+public class StarNodes {
+    private final Group group;
+    private Ellipse[] stars;
+    private int shownCount; //nodes that are currently visible
+
+    public StarNodes() {
+        this.group = new Group();
+        this.stars = new Ellipse[0];
+    }
+
+    /**
+     * @return the group holding the star nodes
+     */
+    public Group getGroup() {
+        return this.group;
+    }
+
+    /**
+     * Moves a node to every visible star of the frame, and hides the nodes that are no longer needed.
+     *
+     * @param frame the frame whose visible stars are shown
+     */
+    public void show(SkyFrame frame) {
+        int count = frame.getVisibleCount();
+        if (count > this.stars.length) {
+            int oldLength = this.stars.length;
+            this.stars = Arrays.copyOf(this.stars, Math.max(count, 2 * oldLength));
+            for (int i = oldLength; i < this.stars.length; i++) {
+                this.stars[i] = new Ellipse(0, 0, 1, 1);
+                this.stars[i].setFill(Color.WHITE);
+                this.stars[i].setVisible(false);
+                this.group.getChildren().add(this.stars[i]);
+            }
+        }
+
+        for (int k = 0; k < count; k++) {
+            this.stars[k].setCenterX(frame.getVisibleX(k));
+            this.stars[k].setCenterY(frame.getVisibleY(k));
+        }
+        for (int k = this.shownCount; k < count; k++) {
+            this.stars[k].setVisible(true);
+        }
+        for (int k = count; k < this.shownCount; k++) {
+            this.stars[k].setVisible(false);
+        }
+        this.shownCount = count;
+    }
+}
@@ -0,0 +1,154 @@
+package cartoon;
+
+/**
+ * Small pictures of stars, one for each band of magnitude, drawn once and then stamped onto the sky for every star,
+ * so brighter stars show up larger and with a glow around them while drawing a star still costs the same single
+ * copy of a few pixels, however bright it is and however many stars there are.
+ * <p>
+ * Magnitudes from Constants.SPRITE_BRIGHTEST_MAGNITUDE to Constants.SPRITE_FAINTEST_MAGNITUDE are cut into
+ * Constants.SPRITE_BUCKETS equal bands (stars outside of that range go into the first or last band). A star's
+ * brightness grows 2.5 times with every magnitude it is brighter, and the radius of its disk is taken to grow with
+ * the fourth root of that (growing with the square root, so the area grows with the brightness, would let the few
+ * brightest stars cover their neighbours), from Constants.SPRITE_MIN_RADIUS for the faintest band, up to at most
+ * Constants.SPRITE_MAX_RADIUS. Around the disk is a glow fading out like a bell curve, out to
+ * Constants.SPRITE_GLOW_FACTOR times the radius.
+ * <p>
+ * All of the sprites are kept side by side in one strip of pixels (an atlas), as white with varying transparency, so
+ * the renderers only need one image. The pixels are plain ARGB ints rather than a JavaFX image, so the CanvasRenderer
+ * and the TimeLapseExporter can each turn them into their own kind of image. The band of every star in the catalog is
+ * worked out once as well, since magnitudes never change, and the sprites are shared by every view through
+ * NightSky.getSprites.
+ */
+public class StarSprites {
+    private final int[] offsets; //x position of each sprite in the atlas
+    private final int[] sizes; //width and height of each sprite, always odd so the star is on the middle pixel
+    private final int width;
+    private final int height;
+    private final int[] pixels;
+    private final byte[] starBuckets;
+
+    /**
+     * Draws the sprites, and sorts every star of the catalog into its band.
+     *
+     * @param stars the working values of the catalog
+     */
+    public StarSprites(StarBuffer stars) {
+        int buckets = Constants.SPRITE_BUCKETS;
+        double[] radii = new double[buckets];
+        this.offsets = new int[buckets];
+        this.sizes = new int[buckets];
+        int width = 0;
+        for (int b = 0; b < buckets; b++) {
+            radii[b] = radius(b);
+            this.offsets[b] = width;
+            this.sizes[b] = 2 * (int) Math.ceil(radii[b] * Constants.SPRITE_GLOW_FACTOR) + 1;
+            width += this.sizes[b];
+        }
+        this.width = width;
+        this.height = this.sizes[0];
+        this.pixels = new int[this.width * this.height];
+        for (int b = 0; b < buckets; b++) {
+            this.drawSprite(b, radii[b]);
+        }
+
+        this.starBuckets = new byte[stars.size()];
+        for (int i = 0; i < this.starBuckets.length; i++) {
+            this.starBuckets[i] = (byte) bucket(stars.getMagnitude(i));
+        }
+    }
+
+    /**
+     * Helper method to work out the radius of the disk of a band's sprite. Band 0 is the brightest.
+     *
+     * @param bucket the band
+     * @return the radius, in pixels
+     */
+    private static double radius(int bucket) {
+        //magnitude of the middle of the band, counted from the faintest band
+        double step = (Constants.SPRITE_FAINTEST_MAGNITUDE - Constants.SPRITE_BRIGHTEST_MAGNITUDE)
+                / Constants.SPRITE_BUCKETS;
+        double brighter = (Constants.SPRITE_BUCKETS - 1 - bucket) * step;
+        double radius = Constants.SPRITE_MIN_RADIUS * Math.pow(10, 0.1 * brighter);
+        return Math.min(radius, Constants.SPRITE_MAX_RADIUS);
+    }
+
+    /**
+     * Helper method to draw one sprite into the atlas: a solid disk with a soft edge, and a glow fading out around it.
+     * Each pixel is covered as much as the brighter of the two, and the sprite sits at the top of the atlas.
+     *
+     * @param bucket the band
+     * @param radius the radius of the disk, in pixels
+     */
+    private void drawSprite(int bucket, double radius) {
+        int size = this.sizes[bucket];
+        double center = size / 2;
+        double glowWidth = radius * (Constants.SPRITE_GLOW_FACTOR - 1) / 3; //the glow is three times this wide
+        for (int row = 0; row < size; row++) {
+            for (int column = 0; column < size; column++) {
+                double distance = Math.hypot(column - center, row - center);
+                //a pixel is covered by the disk as much as it lies inside of its edge, which is a pixel wide
+                double disk = Math.max(0, Math.min(1, radius + 0.5 - distance));
+                double outside = Math.max(0, distance - radius);
+                double glow = Constants.SPRITE_GLOW_ALPHA * Math.exp(-outside * outside / (2 * glowWidth * glowWidth));
+                int alpha = (int) Math.round(255 * Math.max(disk, glow));
+                this.pixels[row * this.width + this.offsets[bucket] + column] = alpha << 24 | 0xFFFFFF;
+            }
+        }
+    }
+
+    /**
+     * @param magnitude the magnitude of a star
+     * @return the band it is drawn with
+     */
+    public static int bucket(double magnitude) {
+        double step = (Constants.SPRITE_FAINTEST_MAGNITUDE - Constants.SPRITE_BRIGHTEST_MAGNITUDE)
+                / Constants.SPRITE_BUCKETS;
+        int bucket = (int) Math.floor((magnitude - Constants.SPRITE_BRIGHTEST_MAGNITUDE) / step);
+        return Math.max(0, Math.min(Constants.SPRITE_BUCKETS - 1, bucket));
+    }
+
+    /**
+     * @param star catalog index of a star
+     * @return the band the star is drawn with
+     */
+    public int getStarBucket(int star) {
+        return this.starBuckets[star];
+    }
+
+    /**
+     * @param bucket a band
+     * @return the x position of its sprite in the atlas, its y position is always 0
+     */
+    public int getOffset(int bucket) {
+        return this.offsets[bucket];
+    }
+
+    /**
+     * @param bucket a band
+     * @return the width and height of its sprite, with the star on the middle pixel
+     */
+    public int getSize(int bucket) {
+        return this.sizes[bucket];
+    }
+
+    /**
+     * @return width of the atlas
+     */
+    public int getWidth() {
+        return this.width;
+    }
+
+    /**
+     * @return height of the atlas, which is the size of the largest sprite
+     */
+    public int getHeight() {
+        return this.height;
+    }
+
+    /**
+     * @return the pixels of the atlas, row after row, as non-premultiplied ARGB
+     */
+    public int[] getPixels() {
+        return this.pixels;
+    }
+}
@@ -0,0 +1,100 @@
+package cartoon;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.time.format.TextStyle;
+import java.time.zone.ZoneOffsetTransition;
+import java.util.Locale;
+import java.util.TimeZone;
+
+/**
+ * Formats the time for the time label, in the same form as Date.toString() (for example "Tue Oct 19 00:00:00 EDT
+ * 2021"), without creating new objects on every tick.
+ * <p>
+ * The text is kept in a character buffer. The date, time zone and year only change at midnight (or when daylight
+ * saving time starts or ends), so the whole buffer is only written then. Every other time, only the hour, minute and
+ * second digits are written, and a new String is only made when the displayed second actually changes.
+ */
+public class TimeLabelFormatter {
+    private static final int TIME_START = 11; //index of the hour in "Tue Oct 19 00:00:00 EDT 2021"
+
+    private final ZoneId zone;
+    private char[] buffer;
+    private long dayStartSecond; //first second covered by the date in the buffer
+    private long dayEndSecond; //first second after it
+    private long dayStartSecondOfDay; //local time of day at dayStartSecond, in seconds
+    private long shownSecond;
+    private String text;
+
+    /**
+     * Creates a formatter for the computer's time zone.
+     */
+    public TimeLabelFormatter() {
+        this.zone = ZoneId.systemDefault();
+    }
+
+    /**
+     * @param epochSecond time to format, in seconds since 1970
+     * @return the formatted time
+     */
+    public String format(long epochSecond) {
+        if (this.text != null && epochSecond == this.shownSecond) {
+            return this.text;
+        }
+        if (epochSecond < this.dayStartSecond || epochSecond >= this.dayEndSecond) {
+            this.writeDate(epochSecond);
+        }
+
+        long secondOfDay = epochSecond - this.dayStartSecond + this.dayStartSecondOfDay;
+        writeTwoDigits(this.buffer, TIME_START, (int) (secondOfDay / 3600));
+        writeTwoDigits(this.buffer, TIME_START + 3, (int) (secondOfDay / 60 % 60));
+        writeTwoDigits(this.buffer, TIME_START + 6, (int) (secondOfDay % 60));
+
+        this.shownSecond = epochSecond;
+        this.text = new String(this.buffer);
+        return this.text;
+    }
+
+    /**
+     * Helper method to write the whole buffer for the date of the given time, and work out for how long that date
+     * (and its time zone offset) stays the same.
+     *
+     * @param epochSecond time whose date is written, in seconds since 1970
+     */
+    private void writeDate(long epochSecond) {
+        ZonedDateTime time = Instant.ofEpochSecond(epochSecond).atZone(this.zone);
+        boolean daylightTime = this.zone.getRules().isDaylightSavings(time.toInstant());
+        String zoneName = TimeZone.getTimeZone(this.zone).getDisplayName(daylightTime, TimeZone.SHORT, Locale.US);
+        String date = time.getDayOfWeek().getDisplayName(TextStyle.SHORT, Locale.US) + " "
+                + time.getMonth().getDisplayName(TextStyle.SHORT, Locale.US) + " "
+                + (time.getDayOfMonth() < 10 ? "0" : "") + time.getDayOfMonth() + " 00:00:00 "
+                + zoneName + " " + time.getYear();
+        this.buffer = date.toCharArray();
+
+        ZonedDateTime midnight = time.toLocalDate().atStartOfDay(this.zone);
+        ZonedDateTime nextMidnight = time.toLocalDate().plusDays(1).atStartOfDay(this.zone);
+        this.dayStartSecond = midnight.toEpochSecond();
+        this.dayEndSecond = nextMidnight.toEpochSecond();
+        this.dayStartSecondOfDay = 0;
+
+        //a change of offset during the day ends the date early, the rest of the day starts a new one
+        ZoneOffsetTransition before = this.zone.getRules().previousTransition(Instant.ofEpochSecond(epochSecond + 1));
+        if (before != null && before.toEpochSecond() > this.dayStartSecond) {
+            this.dayStartSecond = before.toEpochSecond();
+            this.dayStartSecondOfDay = before.getDateTimeAfter().toLocalTime().toSecondOfDay();
+        }
+        ZoneOffsetTransition after = this.zone.getRules().nextTransition(Instant.ofEpochSecond(epochSecond));
+        if (after != null && after.toEpochSecond() < this.dayEndSecond) {
+            this.dayEndSecond = after.toEpochSecond();
+        }
+    }
+
+    /**
+     * Helper method to write a number from 0 to 99 as two digits.
+     */
+    private static void writeTwoDigits(char[] buffer, int index, int value) {
+        buffer[index] = (char) ('0' + value / 10);
+        buffer[index + 1] = (char) ('0' + value % 10);
+    }
+}
@@ -0,0 +1,309 @@
+package cartoon;
+
+import javax.imageio.ImageIO;
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.geom.Area;
+import java.awt.geom.Ellipse2D;
+import java.awt.geom.Line2D;
+import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Renders the sky over a range of dates, at a fixed step of simulated time, into a numbered sequence of PNG files,
+ * without opening a window, so time-lapse clips no longer have to be recorded off the screen at the speed of the
+ * running program. The frames look like the canvas view of the program, drawn with Java2D instead of JavaFX (stars are
+ * stamped from the same StarSprites), so this runs headless.
+ * <p>
+ * Every frame goes through three stages: the sky is computed (EphemerisEngine.computeFrame, which splits large
+ * catalogs across its own pool), drawn into an image, and encoded as a PNG. The first stage runs on the calling
+ * thread, in order, and the other two each have a thread per core, so while one frame is being encoded the next ones
+ * are already being drawn and computed. Encoding is by far the slowest stage, so it decides how fast the export runs.
+ * <p>
+ * Only Constants.EXPORT_FRAMES_IN_FLIGHT frames and as many images exist, handed from stage to stage and back through
+ * two bounded queues. A stage that needs a frame or an image while all of them are in use waits for one to be handed
+ * back, so when encoding falls behind, drawing and computing simply slow down to its speed (back-pressure), and the
+ * memory used stays the same whether 10 or 10,000 frames are exported.
+ * <p>
+ * Run with: java cartoon.TimeLapseExporter [first day (yyyy-mm-dd)] [days] [step in minutes] [directory] [latitude
+ * longitude]
+ */
+public class TimeLapseExporter {
+    private static final Color GROUND = new Color(47, 79, 79); //DARKSLATEGRAY, as in SkyView
+    private static final Color LABEL = new Color(135, 206, 235); //SKYBLUE, as in SkyView and CanvasRenderer
+
+    private final EphemerisEngine engine;
+    private final Viewport viewport;
+    private final Asterism[] asterisms;
+    private final StarSprites sprites;
+    private final BufferedImage atlas;
+    private final Area ground;
+    private final Font labelFont;
+    private final Font timeFont;
+
+    /**
+     * A frame of the sky on its way through the pipeline.
+     */
+    private static class Job {
+        private final SkyFrame frame;
+        private int number;
+        private String time;
+
+        private Job(SkyFrame frame) {
+            this.frame = frame;
+        }
+    }
+
+    /**
+     * @param engine   the engine the sky is computed with
+     * @param viewport the part of the dome shown, which decides the size of the images
+     */
+    public TimeLapseExporter(EphemerisEngine engine, Viewport viewport) {
+        this.engine = engine;
+        this.viewport = viewport;
+        this.asterisms = engine.getSky().getAsterisms();
+        this.sprites = engine.getSky().getSprites();
+        this.atlas = new BufferedImage(this.sprites.getWidth(), this.sprites.getHeight(), BufferedImage.TYPE_INT_ARGB);
+        this.atlas.setRGB(0, 0, this.sprites.getWidth(), this.sprites.getHeight(), this.sprites.getPixels(), 0,
+                this.sprites.getWidth());
+        //the ground covers everything but the circle of the horizon, worked out once for every frame
+        double horizon = viewport.getHorizonRadius();
+        this.ground = new Area(new Rectangle2D.Double(0, 0, viewport.getWidth(), viewport.getHeight()));
+        this.ground.subtract(new Area(new Ellipse2D.Double(viewport.getZenithX() - horizon,
+                viewport.getZenithY() - horizon, 2 * horizon, 2 * horizon)));
+        this.labelFont = new Font(Font.SANS_SERIF, Font.PLAIN, 10);
+        this.timeFont = new Font(Font.SANS_SERIF, Font.PLAIN, 18);
+    }
+
+    /**
+     * Renders frameCount frames, stepMillis apart starting at startMillis, into frame000000.png, frame000001.png and
+     * so on in the given directory, which is created if needed. Returns once every file is written.
+     *
+     * @param startMillis time of the first frame, in milliseconds since 1970
+     * @param stepMillis  simulated time between two frames, in milliseconds
+     * @param frameCount  number of frames
+     * @param observer    where the sky is seen from
+     * @param directory   directory to write the files into
+     * @throws IOException          if the directory cannot be created or a file cannot be written
+     * @throws InterruptedException if the calling thread is interrupted while waiting
+     */
+    public void export(double startMillis, double stepMillis, int frameCount, Observer observer, Path directory)
+            throws IOException, InterruptedException {
+        Files.createDirectories(directory);
+        int threads = Runtime.getRuntime().availableProcessors();
+        int inFlight = Constants.EXPORT_FRAMES_IN_FLIGHT;
+        BlockingQueue<Job> freeJobs = new ArrayBlockingQueue<>(inFlight);
+        BlockingQueue<BufferedImage> freeImages = new ArrayBlockingQueue<>(inFlight);
+        for (int i = 0; i < inFlight; i++) {
+            freeJobs.add(new Job(new SkyFrame(this.engine.getSky())));
+            freeImages.add(new BufferedImage((int) Math.ceil(this.viewport.getWidth()),
+                    (int) Math.ceil(this.viewport.getHeight()), BufferedImage.TYPE_INT_RGB));
+        }
+        ExecutorService rasterizers = Executors.newFixedThreadPool(threads);
+        ExecutorService encoders = Executors.newFixedThreadPool(threads);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        TimeLabelFormatter formatter = new TimeLabelFormatter();
+
+        try {
+            for (int n = 0; n < frameCount && failure.get() == null; n++) {
+                //waits here while every frame is still being drawn
+                Job job = freeJobs.take();
+                double time = startMillis + n * stepMillis;
+                this.engine.computeFrame(time, observer, this.viewport, job.frame);
+                job.number = n;
+                job.time = formatter.format(Math.floorDiv(Math.round(time), 1000L));
+                rasterizers.execute(() -> this.rasterize(job, freeJobs, freeImages, encoders, directory, failure));
+            }
+            //every job is back once every frame is drawn, and then every image once every frame is encoded
+            for (int i = 0; i < inFlight; i++) {
+                freeJobs.take();
+            }
+            for (int i = 0; i < inFlight; i++) {
+                freeImages.take();
+            }
+        } finally {
+            rasterizers.shutdown();
+            encoders.shutdown();
+        }
+
+        //the stages catch everything they throw, so nothing but these can end up here
+        Throwable e = failure.get();
+        if (e instanceof IOException) {
+            throw (IOException) e;
+        } else if (e instanceof Error) {
+            throw (Error) e;
+        } else if (e != null) {
+            throw (RuntimeException) e;
+        }
+    }
+
+    /**
+     * Helper method for the second stage: waits for a free image, draws the frame into it, hands the frame back, and
+     * passes the image on to be encoded. Whatever happens, even an Error, the frame is handed back, and so is the
+     * image unless it was passed on, so the pipeline never runs out of them and export never waits forever. Anything
+     * thrown is kept in failure for export to throw.
+     *
+     * @param job        the frame to draw
+     * @param freeJobs   queue the frame is handed back to
+     * @param freeImages queue of free images
+     * @param encoders   threads of the third stage
+     * @param directory  directory to write the file into
+     * @param failure    the first error, if any
+     */
+    private void rasterize(Job job, BlockingQueue<Job> freeJobs, BlockingQueue<BufferedImage> freeImages,
+                           ExecutorService encoders, Path directory, AtomicReference<Throwable> failure) {
+        BufferedImage image = null;
+        boolean passedOn = false;
+        int number = job.number;
+        try {
+            try {
+                image = freeImages.take();
+                this.draw(job, image);
+            } finally {
+                freeJobs.add(job);
+            }
+
+            BufferedImage drawn = image;
+            encoders.execute(() -> {
+                try {
+                    ImageIO.write(drawn, "png", directory.resolve(fileName(number)).toFile());
+                } catch (Throwable e) {
+                    failure.compareAndSet(null, e);
+                } finally {
+                    freeImages.add(drawn);
+                }
+            });
+            passedOn = true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Throwable e) {
+            failure.compareAndSet(null, e);
+        } finally {
+            if (image != null && !passedOn) {
+                freeImages.add(image);
+            }
+        }
+    }
+
+    /**
+     * Helper method to draw a frame the way the canvas view draws it: the lines, the stars above the horizon, the
+     * names of the asterisms, the cardinal directions and the zenith, then the ground over everything below the
+     * horizon, then the time.
+     *
+     * @param job   the frame to draw
+     * @param image the image to draw into
+     */
+    private void draw(Job job, BufferedImage image) {
+        SkyFrame frame = job.frame;
+        Graphics2D g = image.createGraphics();
+        try {
+            g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+            g.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+            g.setColor(Color.BLACK);
+            g.fillRect(0, 0, image.getWidth(), image.getHeight());
+
+            g.setColor(Color.BLUE);
+            g.setStroke(new BasicStroke(1));
+            Line2D.Double line = new Line2D.Double();
+            for (Asterism asterism : this.asterisms) {
+                int[] edgeSlots = asterism.getEdgeSlots();
+                for (int i = 0; i < edgeSlots.length; i += 2) {
+                    line.setLine(frame.getAsterismStarX(edgeSlots[i]), frame.getAsterismStarY(edgeSlots[i]),
+                            frame.getAsterismStarX(edgeSlots[i + 1]), frame.getAsterismStarY(edgeSlots[i + 1]));
+                    g.draw(line);
+                }
+            }
+
+            //stars are stamped from the sprite atlas as in the CanvasRenderer, to the nearest pixel
+            int[] visibleStars = frame.getVisibleStars();
+            for (int k = 0; k < frame.getVisibleCount(); k++) {
+                int bucket = this.sprites.getStarBucket(visibleStars[k]);
+                int size = this.sprites.getSize(bucket);
+                int offset = this.sprites.getOffset(bucket);
+                int x = (int) Math.round(frame.getVisibleX(k) - size / 2.0);
+                int y = (int) Math.round(frame.getVisibleY(k) - size / 2.0);
+                g.drawImage(this.atlas, x, y, x + size, y + size, offset, 0, offset + size, size, null);
+            }
+
+            g.setColor(LABEL);
+            g.setFont(this.labelFont);
+            for (int i = 0; i < this.asterisms.length; i++) {
+                g.drawString(this.asterisms[i].getName(), (float) frame.getLabelX(i), (float) frame.getLabelY(i));
+            }
+
+            //the directions and the zenith are placed as in SkyView.placeOverlay
+            float zenithX = (float) this.viewport.getZenithX();
+            float zenithY = (float) this.viewport.getZenithY();
+            float horizon = (float) this.viewport.getHorizonRadius();
+            g.setColor(Color.RED);
+            g.drawString("N", zenithX, zenithY + horizon);
+            g.drawString("S", zenithX, zenithY - horizon + 10);
+            g.drawString("E", zenithX + horizon - 10, zenithY);
+            g.drawString("W", zenithX - horizon, zenithY);
+            g.fill(new Ellipse2D.Double(zenithX - 2, zenithY - 2, 4, 4));
+            g.setColor(LABEL);
+            g.drawString("Zenith", zenithX + 3, zenithY + 13);
+
+            g.setColor(GROUND);
+            g.fill(this.ground);
+
+            g.setColor(Color.WHITE);
+            g.setFont(this.timeFont);
+            g.drawString(job.time, 2, 20);
+        } finally {
+            g.dispose();
+        }
+    }
+
+    /**
+     * @param number the number of a frame
+     * @return the name of its file
+     */
+    private static String fileName(int number) {
+        return String.format("frame%06d.png", number);
+    }
+
+    public static void main(String[] argv) throws InterruptedException {
+        System.setProperty("java.awt.headless", "true");
+        ZoneId zone = ZoneId.systemDefault();
+        LocalDate start = argv.length > 0 ? LocalDate.parse(argv[0])
+                : Instant.ofEpochMilli(Constants.EPOCH_MILLIS).atZone(zone).toLocalDate();
+        int days = argv.length > 1 ? Integer.parseInt(argv[1]) : 1;
+        double stepMinutes = argv.length > 2 ? Double.parseDouble(argv[2]) : Constants.EXPORT_STEP_MINUTES;
+        Path directory = Paths.get(argv.length > 3 ? argv[3] : Constants.EXPORT_DIRECTORY);
+        Observer observer = argv.length > 5 ? new Observer(Double.parseDouble(argv[4]), Double.parseDouble(argv[5]))
+                : new Observer(Constants.LATITUDE, Constants.LONGITUDE);
+
+        double startMillis = start.atStartOfDay(zone).toInstant().toEpochMilli();
+        double endMillis = start.plusDays(days).atStartOfDay(zone).toInstant().toEpochMilli();
+        double stepMillis = stepMinutes * 60000;
+        int frameCount = (int) Math.ceil((endMillis - startMillis) / stepMillis);
+
+        TimeLapseExporter exporter = new TimeLapseExporter(new EphemerisEngine(new NightSky()), Viewport.WHOLE_SKY);
+        long exportStart = System.nanoTime();
+        try {
+            exporter.export(startMillis, stepMillis, frameCount, observer, directory);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not export frames to " + directory, e);
+        }
+        double seconds = (System.nanoTime() - exportStart) / 1e9;
+        System.out.printf("exported %d frames to %s in %.1f s (%.1f frames/s)%n", frameCount, directory, seconds,
+                frameCount / seconds);
+    }
+}
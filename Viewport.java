@@ -0,0 +1,212 @@
+package cartoon;
+
+/**
+ * The part of the dome a view shows, as the size of the view, a zoom, and the part of the whole-dome picture (the
+ * picture the program shows when not zoomed in) that fills the view. The whole-dome picture is as large as the view,
+ * with the zenith in its middle and the horizon as large a circle as fits, so everything on the screen follows from
+ * the size of the view rather than from Constants. A viewport never changes once made: zooming, panning or resizing
+ * makes a new one,
+ * which is handed to the simulator like a new observer, so a frame always knows the exact viewport it was computed
+ * for.
+ * <p>
+ * Zooming in only shows part of the sky, so it is also a chance to show fainter stars without drawing more of them:
+ * the sky index keeps the stars of every cell brightest first, and each zoom level in Constants.LOD_ZOOMS comes with
+ * a limiting magnitude in Constants.LOD_MAGNITUDES. A view of the whole dome only draws the brightest tier, and every
+ * time the zoom doubles (a quarter of the sky on the screen) the next tier of fainter stars is drawn as well. Each
+ * tier goes 1.2 magnitudes fainter, which takes in about 3.6 times as many stars, so the number of stars drawn stays
+ * only roughly the same at every zoom (a little fewer with each tier, and more or fewer depending on how crowded the
+ * part of the sky shown is), rather than growing with the catalog.
+ * <p>
+ * The viewport cannot be zoomed out past the whole dome, or panned past the edges of the whole-dome picture, so the
+ * ground always covers everything below the horizon.
+ */
+public class Viewport {
+    //the whole dome at the size of the window set in Constants, which is what the program starts with
+    public static final Viewport WHOLE_SKY = wholeSky(Constants.APP_WIDTH, Constants.CARTOON_PANE_HEIGHT);
+
+    private final double width;
+    private final double height;
+    private final double zoom;
+    private final double left; //part of the whole-dome picture at the top left corner of the view
+    private final double top;
+
+    /**
+     * @param width  width of the view
+     * @param height height of the view
+     * @param zoom   how many times larger than the whole-dome picture the sky is shown, at least 1
+     * @param left   x position, in the whole-dome picture, of the left edge of the view
+     * @param top    y position, in the whole-dome picture, of the top edge of the view
+     */
+    private Viewport(double width, double height, double zoom, double left, double top) {
+        this.width = width;
+        this.height = height;
+        this.zoom = zoom;
+        this.left = left;
+        this.top = top;
+    }
+
+    /**
+     * @param width  width of the view
+     * @param height height of the view
+     * @return the viewport showing the whole dome in a view of the given size
+     */
+    public static Viewport wholeSky(double width, double height) {
+        return new Viewport(width, height, 1, 0, 0);
+    }
+
+    /**
+     * Helper method to make a viewport, zoomed and panned only as far as it can go.
+     *
+     * @param width  width of the view
+     * @param height height of the view
+     * @param zoom   the zoom asked for
+     * @param left   the left edge asked for
+     * @param top    the top edge asked for
+     * @return the viewport
+     */
+    private static Viewport clamped(double width, double height, double zoom, double left, double top) {
+        zoom = Math.max(1, Math.min(Constants.MAX_ZOOM, zoom));
+        left = Math.max(0, Math.min(width * (1 - 1 / zoom), left));
+        top = Math.max(0, Math.min(height * (1 - 1 / zoom), top));
+        return new Viewport(width, height, zoom, left, top);
+    }
+
+    /**
+     * Zooms in or out, keeping the same part of the sky under the given point of the view.
+     *
+     * @param factor how many times to zoom in, less than 1 to zoom out
+     * @param x      x position of the point in the view, such as the mouse
+     * @param y      y position of the point in the view
+     * @return the new viewport
+     */
+    public Viewport zoomedAt(double factor, double x, double y) {
+        double pictureX = this.left + x / this.zoom;
+        double pictureY = this.top + y / this.zoom;
+        double zoom = Math.max(1, Math.min(Constants.MAX_ZOOM, this.zoom * factor));
+        return clamped(this.width, this.height, zoom, pictureX - x / zoom, pictureY - y / zoom);
+    }
+
+    /**
+     * Moves the sky along with the mouse.
+     *
+     * @param dx how far to move it to the right, in the view
+     * @param dy how far to move it down, in the view
+     * @return the new viewport
+     */
+    public Viewport pannedBy(double dx, double dy) {
+        return clamped(this.width, this.height, this.zoom, this.left - dx / this.zoom, this.top - dy / this.zoom);
+    }
+
+    /**
+     * Changes the size of the view, keeping the zoom and the part of the sky in the middle of the view.
+     *
+     * @param width  the new width of the view
+     * @param height the new height of the view
+     * @return the new viewport
+     */
+    public Viewport resized(double width, double height) {
+        //the middle of the view, as a distance from the zenith in horizon radii, stays the same
+        double middleX = (this.left + this.width / (2 * this.zoom) - this.width / 2) / this.getPictureRadius();
+        double middleY = (this.top + this.height / (2 * this.zoom) - this.height / 2) / this.getPictureRadius();
+        double radius = Math.min(width, height) / 2;
+        return clamped(width, height, this.zoom, width / 2 + middleX * radius - width / (2 * this.zoom),
+                height / 2 + middleY * radius - height / (2 * this.zoom));
+    }
+
+    /**
+     * Helper method to find the radius of the horizon in the whole-dome picture, the largest circle that fits.
+     *
+     * @return the radius
+     */
+    private double getPictureRadius() {
+        return Math.min(this.width, this.height) / 2;
+    }
+
+    /**
+     * @return index of the tier of Constants.LOD_MAGNITUDES drawn at this zoom
+     */
+    public int getTier() {
+        int tier = 0;
+        while (tier + 1 < Constants.LOD_ZOOMS.length && this.zoom >= Constants.LOD_ZOOMS[tier + 1]) {
+            tier++;
+        }
+        return tier;
+    }
+
+    /**
+     * @param pictureX x position in the whole-dome picture
+     * @return x position in the view
+     */
+    public double toViewX(double pictureX) {
+        return (pictureX - this.left) * this.zoom;
+    }
+
+    /**
+     * @param pictureY y position in the whole-dome picture
+     * @return y position in the view
+     */
+    public double toViewY(double pictureY) {
+        return (pictureY - this.top) * this.zoom;
+    }
+
+    /**
+     * @return screen units per radian from the zenith
+     */
+    public double getScale() {
+        return this.getPictureRadius() / (Math.PI / 2) * this.zoom;
+    }
+
+    /**
+     * @return radius of the horizon in the view
+     */
+    public double getHorizonRadius() {
+        return this.getPictureRadius() * this.zoom;
+    }
+
+    /**
+     * @return x position of the zenith in the view
+     */
+    public double getZenithX() {
+        return this.toViewX(this.width / 2);
+    }
+
+    /**
+     * @return y position of the zenith in the view
+     */
+    public double getZenithY() {
+        return this.toViewY(this.height / 2);
+    }
+
+    /**
+     * The celestial pole above the horizon stands as high as the latitude is far from the equator, over the northern
+     * horizon (the bottom of the view) for the north pole, or the southern horizon (the top) for the south pole. It is
+     * always straight below or above the zenith.
+     *
+     * @param transform where the sky is seen from
+     * @return y position in the view of the celestial pole above the horizon
+     */
+    public double getPoleY(ObserverTransform transform) {
+        double poleDistance = Math.PI / 2 - Math.abs(transform.getLatitudeRadians());
+        return this.getZenithY() + transform.getVisiblePole() * poleDistance * this.getScale();
+    }
+
+    public double getWidth() {
+        return this.width;
+    }
+
+    public double getHeight() {
+        return this.height;
+    }
+
+    public double getZoom() {
+        return this.zoom;
+    }
+
+    public double getLeft() {
+        return this.left;
+    }
+
+    public double getTop() {
+        return this.top;
+    }
+}